@@ -1,6 +1,8 @@
 plugins {
     alias(libs.plugins.agp) apply false
+    alias(libs.plugins.kotlin.allopen) apply false
     alias(libs.plugins.kotlin.android) apply false
+    alias(libs.plugins.kotlinx.benchmark) apply false
     alias(libs.plugins.ksp) apply false
     alias(libs.plugins.ktlint.plugin) apply false
     alias(libs.plugins.shadow) apply false
@@ -38,7 +38,7 @@ class FrequencyChartTest : BaseViewTest() {
         fixtures.purgeHabits(habitList)
         val habit = fixtures.createLongHabit()
         view = FrequencyChart(targetContext).apply {
-            setFrequency(habit.originalEntries.computeWeekdayFrequency(habit.isNumerical))
+            setFrequency(habit.originalEntries.getWeekdayFrequency(habit.isNumerical))
             setColor(habit.color.toFixedAndroidColor())
         }
         measureView(view, dpToPixels(300), dpToPixels(100))
@@ -20,10 +20,14 @@
 package org.isoron.uhabits
 
 import android.app.Application
+import android.content.BroadcastReceiver
 import android.content.Context
+import android.content.Intent
+import android.content.IntentFilter
 import org.isoron.uhabits.core.database.UnsupportedDatabaseVersionException
 import org.isoron.uhabits.core.reminders.ReminderScheduler
 import org.isoron.uhabits.core.ui.NotificationTray
+import org.isoron.uhabits.core.utils.DateUtils
 import org.isoron.uhabits.core.utils.DateUtils.Companion.setStartDayOffset
 import org.isoron.uhabits.inject.AppContextModule
 import org.isoron.uhabits.inject.DaggerHabitsApplicationComponent
@@ -67,6 +71,20 @@ class HabitsApplication : Application() {
             .habitsModule(HabitsModule(db))
             .build()
 
+        // Share the cached clock with the static helpers in DateUtils, and discard the cached day
+        // whenever the user changes the system time or time zone.
+        val clock = component.clock
+        DateUtils.clock = clock
+        registerReceiver(
+            object : BroadcastReceiver() {
+                override fun onReceive(context: Context, intent: Intent) = clock.invalidate()
+            },
+            IntentFilter().apply {
+                addAction(Intent.ACTION_TIMEZONE_CHANGED)
+                addAction(Intent.ACTION_TIME_CHANGED)
+            }
+        )
+
         val prefs = component.preferences
         prefs.lastAppVersion = BuildConfig.VERSION_CODE
 
@@ -76,8 +94,16 @@ class HabitsApplication : Application() {
             setStartDayOffset(0, 0)
         }
 
+        // Derived data (scores, streaks) is computed lazily, the first time it is needed. Warm up
+        // the habits shown on the main screen first, so that they are likely ready by the time
+        // the list is displayed. The warm-up runs on the pool of the engine, instead of the task
+        // runner, so that list refreshes and commands are never queued behind it.
         val habitList = component.habitList
-        for (h in habitList) h.recompute()
+        val taskRunner = component.taskRunner
+        component.habitRecomputeEngine.recomputeIfStaleInBackground(
+            { habitList.filter { !it.isArchived } },
+            { habitList.filter { it.isArchived } }
+        )
 
         widgetUpdater = component.widgetUpdater.apply {
             startListening()
@@ -90,7 +116,6 @@ class HabitsApplication : Application() {
         notificationTray = component.notificationTray
         notificationTray.startListening()
 
-        val taskRunner = component.taskRunner
         taskRunner.execute {
             reminderScheduler.scheduleAll()
             widgetUpdater.updateWidgets()
@@ -24,10 +24,13 @@ import android.graphics.Paint
 import android.graphics.RectF
 import android.util.AttributeSet
 import org.isoron.uhabits.R
+import org.isoron.uhabits.core.models.Entry
+import org.isoron.uhabits.core.models.EntryList
 import org.isoron.uhabits.core.models.Timestamp
+import org.isoron.uhabits.core.models.WeekdayFrequency
 import org.isoron.uhabits.core.utils.DateUtils.Companion.getShortWeekdayNames
-import org.isoron.uhabits.core.utils.DateUtils.Companion.getStartOfTodayCalendar
 import org.isoron.uhabits.core.utils.DateUtils.Companion.getStartOfTodayCalendarWithOffset
+import org.isoron.uhabits.core.utils.DateUtils.Companion.getToday
 import org.isoron.uhabits.core.utils.DateUtils.Companion.getWeekdaySequence
 import org.isoron.uhabits.core.utils.DateUtils.Companion.getWeekdaysInMonth
 import org.isoron.uhabits.utils.ColorUtils.mixColors
@@ -38,7 +41,6 @@ import java.util.Calendar
 import java.util.GregorianCalendar
 import java.util.Locale
 import java.util.Random
-import kotlin.collections.HashMap
 import kotlin.math.max
 import kotlin.math.min
 import kotlin.math.roundToInt
@@ -62,8 +64,8 @@ class FrequencyChart : ScrollableChart {
     private lateinit var colors: IntArray
     private var primaryColor = 0
     private var isBackgroundTransparent = false
-    private lateinit var frequency: HashMap<Timestamp, Array<Int>>
-    private var maxFreq = 0
+    private var frequency: WeekdayFrequency = EntryList().getWeekdayFrequency(false)
+    private var maxFreq = 1
     private var firstWeekday = Calendar.SUNDAY
     private var isNumerical: Boolean = false
 
@@ -72,7 +74,6 @@ class FrequencyChart : ScrollableChart {
     }
 
     constructor(context: Context?, attrs: AttributeSet?) : super(context, attrs) {
-        frequency = HashMap()
         init()
     }
 
@@ -87,9 +88,9 @@ class FrequencyChart : ScrollableChart {
         postInvalidate()
     }
 
-    fun setFrequency(frequency: java.util.HashMap<Timestamp, Array<Int>>) {
+    fun setFrequency(frequency: WeekdayFrequency) {
         this.frequency = frequency
-        maxFreq = getMaxFreq(frequency)
+        maxFreq = max(1, frequency.max)
         postInvalidate()
     }
 
@@ -98,15 +99,6 @@ class FrequencyChart : ScrollableChart {
         postInvalidate()
     }
 
-    private fun getMaxFreq(frequency: HashMap<Timestamp, Array<Int>>): Int {
-        var maxValue = 1
-        for (values in frequency.values) for (value in values) maxValue = max(
-            value,
-            maxValue
-        )
-        return maxValue
-    }
-
     fun setIsBackgroundTransparent(isBackgroundTransparent: Boolean) {
         this.isBackgroundTransparent = isBackgroundTransparent
         initColors()
@@ -172,8 +164,9 @@ class FrequencyChart : ScrollableChart {
     }
 
     private fun drawColumn(canvas: Canvas, rect: RectF?, date: GregorianCalendar) {
-        val values = frequency[Timestamp(date)]
-        val weekDaysInMonth = getWeekdaysInMonth(Timestamp(date))
+        val month = Timestamp(date)
+        val hasValues = month in frequency
+        val weekDaysInMonth = getWeekdaysInMonth(month)
         val rowHeight = rect!!.height() / 8.0f
         prevRect!!.set(rect)
         val localeWeekdayList: Array<Int> = getWeekdaySequence(firstWeekday)
@@ -181,8 +174,8 @@ class FrequencyChart : ScrollableChart {
             rect[0f, 0f, baseSize.toFloat()] = baseSize.toFloat()
             rect.offset(prevRect!!.left, prevRect!!.top + baseSize * j)
             val i = localeWeekdayList[j] % 7
-            if (values != null) {
-                drawMarker(canvas, rect, values[i], weekDaysInMonth[i])
+            if (hasValues) {
+                drawMarker(canvas, rect, frequency[month, i], weekDaysInMonth[i])
             }
             rect.offset(0f, rowHeight)
         }
@@ -296,15 +289,13 @@ class FrequencyChart : ScrollableChart {
     }
 
     fun populateWithRandomData() {
-        val date: GregorianCalendar = getStartOfTodayCalendar()
-        date[Calendar.DAY_OF_MONTH] = 1
+        val today = getToday()
         val rand = Random()
-        frequency.clear()
-        for (i in 0..39) {
-            val values = IntArray(7) { rand.nextInt(5) }.toTypedArray()
-            frequency[Timestamp(date)] = values
-            date.add(Calendar.MONTH, -1)
+        val entries = EntryList()
+        for (i in 0 until 40 * 31) {
+            if (rand.nextBoolean()) entries.add(Entry(today.minus(i), Entry.YES_MANUAL))
         }
-        maxFreq = getMaxFreq(frequency)
+        frequency = entries.getWeekdayFrequency(isNumerical = false)
+        maxFreq = max(1, frequency.max)
     }
 }
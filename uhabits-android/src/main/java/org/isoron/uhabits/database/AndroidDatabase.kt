@@ -56,6 +56,41 @@ class AndroidDatabase(
         return db.insert(tableName, null, contValues)
     }
 
+    override fun insertBatch(
+        tableName: String,
+        columns: Array<String>,
+        rows: List<Array<out Any?>>
+    ) {
+        if (rows.isEmpty()) return
+        val query = columns.joinToString(
+            separator = ", ",
+            prefix = "insert into $tableName(",
+            postfix = ") values(${columns.joinToString(", ") { "?" }})"
+        )
+        db.beginTransaction()
+        try {
+            db.compileStatement(query).use { st ->
+                for (row in rows) {
+                    st.clearBindings()
+                    for (i in row.indices) {
+                        when (val value = row[i]) {
+                            null -> st.bindNull(i + 1)
+                            is Int -> st.bindLong(i + 1, value.toLong())
+                            is Long -> st.bindLong(i + 1, value)
+                            is Double -> st.bindDouble(i + 1, value)
+                            is String -> st.bindString(i + 1, value)
+                            else -> throw IllegalStateException("unsupported type: $value")
+                        }
+                    }
+                    st.executeInsert()
+                }
+            }
+            db.setTransactionSuccessful()
+        } finally {
+            db.endTransaction()
+        }
+    }
+
     override fun delete(
         tableName: String,
         where: String,
@@ -25,6 +25,7 @@ import org.isoron.uhabits.core.commands.CommandRunner
 import org.isoron.uhabits.core.io.GenericImporter
 import org.isoron.uhabits.core.io.Logging
 import org.isoron.uhabits.core.models.HabitList
+import org.isoron.uhabits.core.models.HabitRecomputeEngine
 import org.isoron.uhabits.core.models.ModelFactory
 import org.isoron.uhabits.core.preferences.Preferences
 import org.isoron.uhabits.core.preferences.WidgetPreferences
@@ -32,6 +33,7 @@ import org.isoron.uhabits.core.reminders.ReminderScheduler
 import org.isoron.uhabits.core.tasks.TaskRunner
 import org.isoron.uhabits.core.ui.NotificationTray
 import org.isoron.uhabits.core.ui.screens.habits.list.HabitCardListCache
+import org.isoron.uhabits.core.utils.Clock
 import org.isoron.uhabits.core.utils.MidnightTimer
 import org.isoron.uhabits.intents.IntentFactory
 import org.isoron.uhabits.intents.IntentParser
@@ -43,6 +45,7 @@ import org.isoron.uhabits.widgets.WidgetUpdater
 @AppScope
 @Component(modules = [AppContextModule::class, HabitsModule::class, AndroidTaskRunner::class])
 interface HabitsApplicationComponent {
+    val clock: Clock
     val commandRunner: CommandRunner
 
     @get:AppContext
@@ -50,6 +53,7 @@ interface HabitsApplicationComponent {
     val genericImporter: GenericImporter
     val habitCardListCache: HabitCardListCache
     val habitList: HabitList
+    val habitRecomputeEngine: HabitRecomputeEngine
     val intentFactory: IntentFactory
     val intentParser: IntentParser
     val logging: Logging
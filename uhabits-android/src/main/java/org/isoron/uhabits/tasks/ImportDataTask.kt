@@ -20,6 +20,8 @@ package org.isoron.uhabits.tasks
 
 import android.util.Log
 import org.isoron.uhabits.core.io.GenericImporter
+import org.isoron.uhabits.core.models.HabitList
+import org.isoron.uhabits.core.models.HabitRecomputeEngine
 import org.isoron.uhabits.core.models.ModelFactory
 import org.isoron.uhabits.core.models.sqlite.SQLModelFactory
 import org.isoron.uhabits.core.tasks.Task
@@ -28,6 +30,8 @@ import java.io.File
 class ImportDataTask(
     private val importer: GenericImporter,
     modelFactory: ModelFactory,
+    private val habitList: HabitList,
+    private val recomputeEngine: HabitRecomputeEngine,
     private val file: File,
     private val listener: Listener
 ) : Task {
@@ -48,6 +52,10 @@ class ImportDataTask(
             Log.e("ImportDataTask", "Import failed", e)
         }
         modelFactory.database.endTransaction()
+
+        // The importer only invalidates the habits, since recomputing them in parallel while the
+        // transaction holds the database would deadlock
+        if (result == SUCCESS) recomputeEngine.recomputeIfStale(habitList.toList())
     }
 
     override fun onPostExecute() {
@@ -20,6 +20,8 @@
 package org.isoron.uhabits.tasks
 
 import org.isoron.uhabits.core.io.GenericImporter
+import org.isoron.uhabits.core.models.HabitList
+import org.isoron.uhabits.core.models.HabitRecomputeEngine
 import org.isoron.uhabits.core.models.ModelFactory
 import java.io.File
 import javax.inject.Inject
@@ -27,8 +29,10 @@ import javax.inject.Inject
 class ImportDataTaskFactory
 @Inject constructor(
     private val importer: GenericImporter,
-    private val modelFactory: ModelFactory
+    private val modelFactory: ModelFactory,
+    private val habitList: HabitList,
+    private val recomputeEngine: HabitRecomputeEngine
 ) {
     fun create(file: File, listener: ImportDataTask.Listener) =
-        ImportDataTask(importer, modelFactory, file, listener)
+        ImportDataTask(importer, modelFactory, habitList, recomputeEngine, file, listener)
 }
@@ -47,8 +47,17 @@ class WidgetUpdater
 ) : CommandRunner.Listener {
 
     override fun onCommandFinished(command: Command) {
-        if (command is CreateRepetitionCommand) {
-            updateWidgets(command.habit.id)
+        onCommandsFinished(listOf(command))
+    }
+
+    /**
+     * Updates the widgets once for the entire batch. If all the commands are repetitions, only
+     * the widgets showing the affected habits are updated.
+     */
+    override fun onCommandsFinished(commands: List<Command>) {
+        if (commands.all { it is CreateRepetitionCommand }) {
+            val ids = commands.mapNotNull { (it as CreateRepetitionCommand).habit.id }.toSet()
+            updateWidgetsOfHabits(ids)
         } else {
             updateWidgets()
         }
@@ -77,25 +86,32 @@ class WidgetUpdater
     }
 
     fun updateWidgets(modifiedHabitId: Long?) {
+        updateWidgetsOfHabits(modifiedHabitId?.let { setOf(it) })
+    }
+
+    /**
+     * Updates the widgets that show any of the given habits, or all widgets if the set is null.
+     */
+    private fun updateWidgetsOfHabits(modifiedHabitIds: Set<Long>?) {
         taskRunner.execute {
-            updateWidgets(modifiedHabitId, CheckmarkWidgetProvider::class.java)
-            updateWidgets(modifiedHabitId, HistoryWidgetProvider::class.java)
-            updateWidgets(modifiedHabitId, ScoreWidgetProvider::class.java)
-            updateWidgets(modifiedHabitId, StreakWidgetProvider::class.java)
-            updateWidgets(modifiedHabitId, FrequencyWidgetProvider::class.java)
-            updateWidgets(modifiedHabitId, TargetWidgetProvider::class.java)
+            updateWidgets(modifiedHabitIds, CheckmarkWidgetProvider::class.java)
+            updateWidgets(modifiedHabitIds, HistoryWidgetProvider::class.java)
+            updateWidgets(modifiedHabitIds, ScoreWidgetProvider::class.java)
+            updateWidgets(modifiedHabitIds, StreakWidgetProvider::class.java)
+            updateWidgets(modifiedHabitIds, FrequencyWidgetProvider::class.java)
+            updateWidgets(modifiedHabitIds, TargetWidgetProvider::class.java)
         }
     }
 
-    private fun updateWidgets(modifiedHabitId: Long?, providerClass: Class<*>) {
+    private fun updateWidgets(modifiedHabitIds: Set<Long>?, providerClass: Class<*>) {
         val widgetIds = AppWidgetManager.getInstance(context).getAppWidgetIds(
             ComponentName(context, providerClass)
         )
 
-        val modifiedWidgetIds = when (modifiedHabitId) {
+        val modifiedWidgetIds = when (modifiedHabitIds) {
             null -> widgetIds.toList()
             else -> widgetIds.filter { w ->
-                widgetPrefs.getHabitIdsFromWidgetId(w).contains(modifiedHabitId)
+                widgetPrefs.getHabitIdsFromWidgetId(w).any { it in modifiedHabitIds }
             }
         }
 
@@ -19,11 +19,20 @@
 
 plugins {
     kotlin("multiplatform")
+    alias(libs.plugins.kotlin.allopen)
+    alias(libs.plugins.kotlinx.benchmark)
     alias(libs.plugins.ktlint.plugin)
 }
 
 kotlin {
-    jvm().withJava()
+    jvm {
+        withJava()
+
+        // JMH benchmarks, which can be run with `./gradlew :uhabits-core:benchmark`
+        compilations.create("benchmark") {
+            associateWith(this@jvm.compilations.getByName("main"))
+        }
+    }
     jvmToolchain(17)
 
     sourceSets {
@@ -66,6 +75,43 @@ kotlin {
                 implementation(libs.junit.jupiter)
             }
         }
+
+        val jvmBenchmark by getting {
+            dependencies {
+                implementation(libs.kotlinx.benchmark.runtime)
+                implementation(libs.sqlite.jdbc)
+            }
+        }
+    }
+}
+
+// JMH requires benchmark state classes to be open
+allOpen {
+    annotation("org.openjdk.jmh.annotations.State")
+}
+
+benchmark {
+    targets {
+        register("jvmBenchmark")
+    }
+    configurations {
+        named("main") {
+            warmups = 3
+            iterations = 5
+            iterationTime = 1
+            iterationTimeUnit = "s"
+            reportFormat = "json"
+        }
+        // Short run, to check that the benchmarks work: `./gradlew :uhabits-core:smokeBenchmark`
+        register("smoke") {
+            warmups = 1
+            iterations = 1
+            iterationTime = 200
+            iterationTimeUnit = "ms"
+            reportFormat = "json"
+            param("historyLength", 365)
+            param("habitCount", 10)
+        }
     }
 }
 
@@ -20,7 +20,6 @@
 package org.isoron.platform.time
 
 import kotlin.math.abs
-import kotlin.math.ceil
 
 enum class DayOfWeek(val daysSinceSunday: Int) {
     SUNDAY(0),
@@ -34,16 +33,16 @@ enum class DayOfWeek(val daysSinceSunday: Int) {
 
 data class LocalDate(val daysSince2000: Int) {
 
-    var yearCache = -1
-    var monthCache = -1
-    var dayCache = -1
+    private var yearCache = -1
+    private var monthCache = -1
+    private var dayCache = -1
 
     constructor(year: Int, month: Int, day: Int) :
         this(daysSince2000(year, month, day))
 
     val dayOfWeek: DayOfWeek
         get() {
-            return when (daysSince2000 % 7) {
+            return when (((daysSince2000 % 7) + 7) % 7) {
                 0 -> DayOfWeek.SATURDAY
                 1 -> DayOfWeek.SUNDAY
                 2 -> DayOfWeek.MONDAY
@@ -73,41 +72,13 @@ data class LocalDate(val daysSince2000: Int) {
         }
 
     val monthLength: Int
-        get() = when (month) {
-            4, 6, 9, 11 -> 30
-            2 -> if (isLeapYear(year)) 29 else 28
-            else -> 31
-        }
+        get() = EpochDays.monthLength(year, month)
 
     private fun updateYearMonthDayCache() {
-        var currYear = 2000
-        var currDay = 0
-        if (daysSince2000 < 0) {
-            currYear -= 400
-            currDay -= 146097
-        }
-        while (true) {
-            val currYearLength = if (isLeapYear(currYear)) 366 else 365
-            if (daysSince2000 < currDay + currYearLength) {
-                yearCache = currYear
-                break
-            } else {
-                currYear++
-                currDay += currYearLength
-            }
-        }
-        var currMonth = 1
-        val monthOffset = if (isLeapYear(currYear)) leapOffset else nonLeapOffset
-        while (true) {
-            if (daysSince2000 < currDay + monthOffset[currMonth]) {
-                monthCache = currMonth
-                break
-            } else {
-                currMonth++
-            }
-        }
-        currDay += monthOffset[currMonth - 1]
-        dayCache = daysSince2000 - currDay + 1
+        val epochDay = daysSince2000 + DAYS_UNTIL_2000
+        yearCache = EpochDays.year(epochDay)
+        monthCache = EpochDays.month(epochDay)
+        dayCache = EpochDays.dayOfMonth(epochDay)
     }
 
     fun isOlderThan(other: LocalDate): Boolean {
@@ -119,11 +90,11 @@ data class LocalDate(val daysSince2000: Int) {
     }
 
     fun plus(days: Int): LocalDate {
-        return LocalDate(daysSince2000 + days)
+        return of(daysSince2000 + days)
     }
 
     fun minus(days: Int): LocalDate {
-        return LocalDate(daysSince2000 - days)
+        return of(daysSince2000 - days)
     }
 
     fun distanceTo(other: LocalDate): Int {
@@ -133,6 +104,39 @@ data class LocalDate(val daysSince2000: Int) {
     override fun toString(): String {
         return "LocalDate($year-$month-$day)"
     }
+
+    companion object {
+        /**
+         * Number of days between 1970-01-01 and 2000-01-01.
+         */
+        private const val DAYS_UNTIL_2000 = 10957L
+
+        /**
+         * Number of slots in the intern cache. Must be a power of two.
+         */
+        private const val CACHE_SIZE = 1024
+
+        private val cache = arrayOfNulls<LocalDate>(CACHE_SIZE)
+
+        /**
+         * Returns a date for the given day, reusing a recently returned instance for the same day
+         * when possible, along with its cached year, month and day. The cache is direct-mapped,
+         * so that any window of up to CACHE_SIZE consecutive days (such as the squares of a
+         * chart) can be redrawn without allocating new dates.
+         */
+        fun of(daysSince2000: Int): LocalDate {
+            val slot = daysSince2000 and (CACHE_SIZE - 1)
+            val cached = cache[slot]
+            if (cached != null && cached.daysSince2000 == daysSince2000) return cached
+            val date = LocalDate(daysSince2000)
+            cache[slot] = date
+            return date
+        }
+
+        private fun daysSince2000(year: Int, month: Int, day: Int): Int {
+            return (EpochDays.fromCivil(year, month, day) - DAYS_UNTIL_2000).toInt()
+        }
+    }
 }
 
 interface LocalDateFormatter {
@@ -140,30 +144,3 @@ interface LocalDateFormatter {
     fun shortWeekdayName(date: LocalDate): String
     fun shortMonthName(date: LocalDate): String
 }
-
-private fun isLeapYear(year: Int): Boolean {
-    return (year % 4 == 0 && year % 100 != 0) || year % 400 == 0
-}
-
-val leapOffset = arrayOf(
-    0, 31, 60, 91, 121, 152, 182,
-    213, 244, 274, 305, 335, 366
-)
-val nonLeapOffset = arrayOf(
-    0, 31, 59, 90, 120, 151, 181,
-    212, 243, 273, 304, 334, 365
-)
-
-private fun daysSince2000(year: Int, month: Int, day: Int): Int {
-    var result = 365 * (year - 2000)
-    result += ceil((year - 2000) / 4.0).toInt()
-    result -= ceil((year - 2000) / 100.0).toInt()
-    result += ceil((year - 2000) / 400.0).toInt()
-    result += if (isLeapYear(year)) {
-        leapOffset[month - 1]
-    } else {
-        nonLeapOffset[month - 1]
-    }
-    result += (day - 1)
-    return result
-}
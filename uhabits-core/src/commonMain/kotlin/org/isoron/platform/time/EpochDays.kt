@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2016-2025 Álinson Santos Xavier <git@axavier.org>
+ *
+ * This file is part of Loop Habit Tracker.
+ *
+ * Loop Habit Tracker is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Loop Habit Tracker is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.isoron.platform.time
+
+/**
+ * Date arithmetic on epoch days (the number of days since 1970-01-01), in the proleptic
+ * Gregorian calendar.
+ *
+ * All functions are computed with integer arithmetic only, in constant time, without
+ * allocating any objects. Months are numbered from 1 (January) to 12 (December), and days of
+ * the week are numbered as in java.util.Calendar, from 1 (Sunday) to 7 (Saturday).
+ */
+class EpochDays {
+    companion object {
+        /**
+         * Days between 0000-03-01, the start of the first 400-year era, and 1970-01-01.
+         */
+        private const val ERA_OFFSET = 719468L
+        private const val DAYS_PER_ERA = 146097L
+
+        fun fromCivil(year: Int, month: Int, day: Int): Long {
+            val y = (if (month <= 2) year - 1 else year).toLong()
+            val era = floorDiv(y, 400)
+            val yearOfEra = y - era * 400
+            val dayOfYear = (153 * (if (month > 2) month - 3 else month + 9) + 2) / 5 + day - 1
+            val dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear
+            return era * DAYS_PER_ERA + dayOfEra - ERA_OFFSET
+        }
+
+        fun year(epochDay: Long): Int {
+            val month = month(epochDay)
+            val dayOfEra = dayOfEra(epochDay)
+            val year = yearOfEra(dayOfEra) + eraOf(epochDay) * 400
+            return (if (month <= 2) year + 1 else year).toInt()
+        }
+
+        fun month(epochDay: Long): Int {
+            val shiftedMonth = shiftedMonth(dayOfShiftedYear(dayOfEra(epochDay)))
+            return if (shiftedMonth < 10) shiftedMonth + 3 else shiftedMonth - 9
+        }
+
+        fun dayOfMonth(epochDay: Long): Int {
+            val dayOfYear = dayOfShiftedYear(dayOfEra(epochDay))
+            return dayOfYear - (153 * shiftedMonth(dayOfYear) + 2) / 5 + 1
+        }
+
+        fun dayOfWeek(epochDay: Long): Int {
+            // 1970-01-01 was a Thursday
+            return floorMod(epochDay + 4, 7).toInt() + 1
+        }
+
+        fun monthLength(year: Int, month: Int): Int {
+            return when (month) {
+                4, 6, 9, 11 -> 30
+                2 -> if (isLeapYear(year)) 29 else 28
+                else -> 31
+            }
+        }
+
+        fun isLeapYear(year: Int): Boolean {
+            return (year % 4 == 0 && year % 100 != 0) || year % 400 == 0
+        }
+
+        /**
+         * Returns the most recent day, on or before the given one, that falls on [firstWeekday].
+         */
+        fun startOfWeek(epochDay: Long, firstWeekday: Int): Long {
+            return epochDay - floorMod((dayOfWeek(epochDay) - firstWeekday).toLong(), 7)
+        }
+
+        fun startOfMonth(epochDay: Long): Long {
+            return epochDay - dayOfMonth(epochDay) + 1
+        }
+
+        fun startOfQuarter(epochDay: Long): Long {
+            val month = month(epochDay)
+            return fromCivil(year(epochDay), (month - 1) / 3 * 3 + 1, 1)
+        }
+
+        fun startOfYear(epochDay: Long): Long {
+            return fromCivil(year(epochDay), 1, 1)
+        }
+
+        private fun eraOf(epochDay: Long) = floorDiv(epochDay + ERA_OFFSET, DAYS_PER_ERA)
+
+        /**
+         * Day within the 400-year era, in [0, 146096]. Eras and years begin on March 1st, so
+         * that leap days fall at the end of each year.
+         */
+        private fun dayOfEra(epochDay: Long): Long {
+            return epochDay + ERA_OFFSET - eraOf(epochDay) * DAYS_PER_ERA
+        }
+
+        private fun yearOfEra(dayOfEra: Long): Long {
+            return (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365
+        }
+
+        /**
+         * Day within the year beginning on March 1st, in [0, 365].
+         */
+        private fun dayOfShiftedYear(dayOfEra: Long): Int {
+            val yearOfEra = yearOfEra(dayOfEra)
+            return (dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100)).toInt()
+        }
+
+        /**
+         * Month within the year beginning on March 1st, in [0, 11].
+         */
+        private fun shiftedMonth(dayOfShiftedYear: Int) = (5 * dayOfShiftedYear + 2) / 153
+
+        private fun floorDiv(x: Long, y: Long): Long {
+            val q = x / y
+            return if (x % y != 0L && (x < 0) != (y < 0)) q - 1 else q
+        }
+
+        private fun floorMod(x: Long, y: Long) = x - floorDiv(x, y) * y
+    }
+}
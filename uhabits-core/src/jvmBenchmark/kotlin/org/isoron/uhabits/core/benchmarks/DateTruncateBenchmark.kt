@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2016-2025 Álinson Santos Xavier <git@axavier.org>
+ *
+ * This file is part of Loop Habit Tracker.
+ *
+ * Loop Habit Tracker is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Loop Habit Tracker is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.isoron.uhabits.core.benchmarks
+
+import kotlinx.benchmark.Benchmark
+import kotlinx.benchmark.BenchmarkMode
+import kotlinx.benchmark.BenchmarkTimeUnit
+import kotlinx.benchmark.Mode
+import kotlinx.benchmark.OutputTimeUnit
+import kotlinx.benchmark.Param
+import kotlinx.benchmark.Scope
+import kotlinx.benchmark.Setup
+import kotlinx.benchmark.State
+import org.isoron.uhabits.core.utils.DateUtils
+import org.isoron.uhabits.core.utils.DateUtils.TruncateField
+import java.util.Calendar
+import java.util.GregorianCalendar
+import java.util.TimeZone
+
+/**
+ * Benchmarks the truncation of every day in a range of history, comparing the epoch-day
+ * arithmetic used by [DateUtils.truncate] against the equivalent GregorianCalendar operations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(BenchmarkTimeUnit.MICROSECONDS)
+class DateTruncateBenchmark {
+    @Param("DAY", "WEEK_NUMBER", "MONTH", "QUARTER", "YEAR")
+    var fieldName = "MONTH"
+
+    private val historyLength = 3650
+    private lateinit var field: TruncateField
+    private var to = 0L
+
+    @Setup
+    fun setUp() {
+        field = TruncateField.valueOf(fieldName)
+        to = DateUtils.getToday().unixTime
+    }
+
+    @Benchmark
+    fun epochDays(): Long {
+        var result = 0L
+        for (i in 0 until historyLength) {
+            val timestamp = to - i * DateUtils.DAY_LENGTH
+            result += DateUtils.truncate(field, timestamp, Calendar.SATURDAY)
+        }
+        return result
+    }
+
+    @Benchmark
+    fun calendar(): Long {
+        var result = 0L
+        for (i in 0 until historyLength) {
+            val timestamp = to - i * DateUtils.DAY_LENGTH
+            val cal = GregorianCalendar(TimeZone.getTimeZone("GMT"))
+            cal.timeInMillis = timestamp
+            when (field) {
+                TruncateField.DAY -> {}
+                TruncateField.MONTH -> cal.set(Calendar.DAY_OF_MONTH, 1)
+                TruncateField.WEEK_NUMBER -> {
+                    val delta = Math.floorMod(cal[Calendar.DAY_OF_WEEK] - Calendar.SATURDAY, 7)
+                    cal.add(Calendar.DAY_OF_YEAR, -delta)
+                }
+                TruncateField.QUARTER -> {
+                    cal.set(Calendar.DAY_OF_MONTH, 1)
+                    cal.set(Calendar.MONTH, cal[Calendar.MONTH] / 3 * 3)
+                }
+                TruncateField.YEAR -> cal.set(Calendar.DAY_OF_YEAR, 1)
+            }
+            result += cal.timeInMillis
+        }
+        return result
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2016-2025 Álinson Santos Xavier <git@axavier.org>
+ *
+ * This file is part of Loop Habit Tracker.
+ *
+ * Loop Habit Tracker is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Loop Habit Tracker is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.isoron.uhabits.core.benchmarks
+
+import kotlinx.benchmark.Benchmark
+import kotlinx.benchmark.BenchmarkMode
+import kotlinx.benchmark.BenchmarkTimeUnit
+import kotlinx.benchmark.Mode
+import kotlinx.benchmark.OutputTimeUnit
+import kotlinx.benchmark.Param
+import kotlinx.benchmark.Scope
+import kotlinx.benchmark.Setup
+import kotlinx.benchmark.State
+import org.isoron.uhabits.core.models.Entry
+import org.isoron.uhabits.core.models.EntryAggregator
+import org.isoron.uhabits.core.models.EntryList
+import org.isoron.uhabits.core.models.Frequency
+import org.isoron.uhabits.core.models.WeekdayFrequency
+import org.isoron.uhabits.core.models.groupedSum
+import org.isoron.uhabits.core.utils.DateUtils
+import java.util.Calendar
+import java.util.Random
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(BenchmarkTimeUnit.MICROSECONDS)
+class EntryListBenchmark {
+    @Param("365", "1825", "3650")
+    var historyLength = 0
+
+    private val frequency = Frequency(3, 7)
+    private val original = EntryList()
+    private val computed = EntryList()
+    private lateinit var known: List<Entry>
+    private lateinit var computedKnown: List<Entry>
+    private lateinit var intervals: ArrayList<EntryList.Interval>
+
+    @Setup
+    fun setUp() {
+        val entries = SyntheticHabits.buildEntries(Random(0), historyLength, isNumerical = false)
+        original.addAll(entries)
+        computed.recomputeFrom(original, frequency, isNumerical = false)
+        known = original.getKnown()
+        computedKnown = computed.getKnown()
+        intervals = EntryList.buildIntervals(frequency, known)
+    }
+
+    @Benchmark
+    fun recomputeFrom(): EntryList {
+        computed.recomputeFrom(original, frequency, isNumerical = false)
+        return computed
+    }
+
+    @Benchmark
+    fun buildIntervals(): List<EntryList.Interval> {
+        return EntryList.buildIntervals(frequency, known)
+    }
+
+    @Benchmark
+    fun snapIntervalsTogether(): List<EntryList.Interval> {
+        val copy = ArrayList(intervals)
+        EntryList.snapIntervalsTogether(copy)
+        return copy
+    }
+
+    @Benchmark
+    fun groupedSum(): List<Entry> {
+        return computedKnown.groupedSum(DateUtils.TruncateField.MONTH, isNumerical = false)
+    }
+
+    @Benchmark
+    fun aggregate(): List<Entry> {
+        val today = DateUtils.getToday()
+        val oldest = today.minus(historyLength - 1)
+        return EntryAggregator(
+            values = computed.getValuesByInterval(oldest, today),
+            to = today,
+            firstWeekday = Calendar.SATURDAY,
+            isNumerical = false
+        ).getSums(DateUtils.TruncateField.MONTH)
+    }
+
+    @Benchmark
+    fun computeWeekdayFrequency(): Any {
+        return computed.computeWeekdayFrequency(isNumerical = false)
+    }
+
+    @Benchmark
+    fun updateWeekdayFrequency(): WeekdayFrequency {
+        original.add(Entry(DateUtils.getToday(), Entry.YES_MANUAL))
+        return original.getWeekdayFrequency(isNumerical = false)
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2016-2025 Álinson Santos Xavier <git@axavier.org>
+ *
+ * This file is part of Loop Habit Tracker.
+ *
+ * Loop Habit Tracker is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Loop Habit Tracker is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.isoron.uhabits.core.benchmarks
+
+import kotlinx.benchmark.Benchmark
+import kotlinx.benchmark.BenchmarkMode
+import kotlinx.benchmark.BenchmarkTimeUnit
+import kotlinx.benchmark.Mode
+import kotlinx.benchmark.OutputTimeUnit
+import kotlinx.benchmark.Param
+import kotlinx.benchmark.Scope
+import kotlinx.benchmark.Setup
+import kotlinx.benchmark.State
+import org.isoron.uhabits.core.commands.CommandRunner
+import org.isoron.uhabits.core.io.StandardLogging
+import org.isoron.uhabits.core.models.memory.MemoryModelFactory
+import org.isoron.uhabits.core.tasks.SingleThreadTaskRunner
+import org.isoron.uhabits.core.ui.screens.habits.list.HabitCardListCache
+
+/**
+ * Benchmarks a full refresh of the main screen cache, with tasks running synchronously.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(BenchmarkTimeUnit.MILLISECONDS)
+class HabitCardListCacheBenchmark {
+    @Param("10", "100", "500")
+    var habitCount = 0
+
+    @Param("365")
+    var historyLength = 0
+
+    private lateinit var cache: HabitCardListCache
+
+    @Setup
+    fun setUp() {
+        val modelFactory = MemoryModelFactory()
+        val habitList = modelFactory.buildHabitList()
+        SyntheticHabits.build(modelFactory, habitList, habitCount, historyLength)
+        val taskRunner = SingleThreadTaskRunner()
+        cache = HabitCardListCache(
+            habitList,
+            CommandRunner(taskRunner),
+            taskRunner,
+            StandardLogging()
+        )
+        cache.setCheckmarkCount(7)
+        cache.refreshAllHabits()
+    }
+
+    @Benchmark
+    fun refreshAllHabits(): HabitCardListCache {
+        cache.refreshAllHabits()
+        return cache
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2016-2025 Álinson Santos Xavier <git@axavier.org>
+ *
+ * This file is part of Loop Habit Tracker.
+ *
+ * Loop Habit Tracker is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Loop Habit Tracker is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.isoron.uhabits.core.benchmarks
+
+import kotlinx.benchmark.Benchmark
+import kotlinx.benchmark.BenchmarkMode
+import kotlinx.benchmark.BenchmarkTimeUnit
+import kotlinx.benchmark.Mode
+import kotlinx.benchmark.OutputTimeUnit
+import kotlinx.benchmark.Param
+import kotlinx.benchmark.Scope
+import kotlinx.benchmark.Setup
+import kotlinx.benchmark.State
+import org.isoron.uhabits.core.models.Habit
+import org.isoron.uhabits.core.models.HabitRecomputeEngine
+import org.isoron.uhabits.core.models.memory.MemoryModelFactory
+
+/**
+ * Compares the time taken to recompute many habits sequentially against the time taken by
+ * [HabitRecomputeEngine].
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(BenchmarkTimeUnit.MILLISECONDS)
+class HabitRecomputeEngineBenchmark {
+    @Param("365", "1825")
+    var historyLength = 0
+
+    private val engine = HabitRecomputeEngine()
+    private lateinit var habits: List<Habit>
+
+    @Setup
+    fun setUp() {
+        val modelFactory = MemoryModelFactory()
+        habits = SyntheticHabits.build(
+            modelFactory,
+            modelFactory.buildHabitList(),
+            HABIT_COUNT,
+            historyLength
+        )
+    }
+
+    @Benchmark
+    fun sequential(): List<Habit> {
+        for (h in habits) h.recompute()
+        return habits
+    }
+
+    @Benchmark
+    fun engine(): List<Habit> {
+        engine.recompute(habits)
+        return habits
+    }
+
+    companion object {
+        private const val HABIT_COUNT = 500
+    }
+}
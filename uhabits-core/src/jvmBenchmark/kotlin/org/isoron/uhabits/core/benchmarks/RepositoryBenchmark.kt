@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2016-2025 Álinson Santos Xavier <git@axavier.org>
+ *
+ * This file is part of Loop Habit Tracker.
+ *
+ * Loop Habit Tracker is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Loop Habit Tracker is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.isoron.uhabits.core.benchmarks
+
+import kotlinx.benchmark.Benchmark
+import kotlinx.benchmark.BenchmarkMode
+import kotlinx.benchmark.BenchmarkTimeUnit
+import kotlinx.benchmark.Mode
+import kotlinx.benchmark.OutputTimeUnit
+import kotlinx.benchmark.Param
+import kotlinx.benchmark.Scope
+import kotlinx.benchmark.Setup
+import kotlinx.benchmark.State
+import kotlinx.benchmark.TearDown
+import org.isoron.uhabits.core.DATABASE_VERSION
+import org.isoron.uhabits.core.database.Database
+import org.isoron.uhabits.core.database.JdbcDatabase
+import org.isoron.uhabits.core.database.MigrationHelper
+import org.isoron.uhabits.core.database.RecordMapper
+import org.isoron.uhabits.core.database.Repository
+import org.isoron.uhabits.core.models.Timestamp
+import org.isoron.uhabits.core.models.sqlite.records.EntryRecord
+import org.isoron.uhabits.core.models.sqlite.records.HabitRecord
+import java.sql.DriverManager
+
+/**
+ * Compares the time taken by [Repository] to load and store records using a [RecordMapper]
+ * against the time taken using reflection.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(BenchmarkTimeUnit.MILLISECONDS)
+class RepositoryBenchmark {
+    @Param("365", "1825")
+    var historyLength = 0
+
+    private lateinit var db: Database
+    private lateinit var mapped: Repository<EntryRecord>
+    private lateinit var reflective: Repository<EntryRecord>
+    private var habitId = 0L
+
+    @Setup
+    fun setUp() {
+        db = JdbcDatabase(DriverManager.getConnection("jdbc:sqlite::memory:"))
+        db.execute("pragma user_version=8;")
+        MigrationHelper(db).migrateTo(DATABASE_VERSION)
+        val habit = HabitRecord().apply {
+            name = "Benchmark"
+            description = ""
+            question = ""
+            freqNum = 1
+            freqDen = 1
+            color = 0
+            position = 0
+            highlight = 0
+            archived = 0
+            type = 0
+            targetType = 0
+            targetValue = 0.0
+            unit = ""
+        }
+        Repository(HabitRecord::class.java, db).save(habit)
+        habitId = habit.id!!
+        mapped = Repository(EntryRecord::class.java, db)
+        reflective = Repository(EntryRecord::class.java, db, null)
+
+        db.beginTransaction()
+        try {
+            insertEntries(mapped, 0)
+            db.setTransactionSuccessful()
+        } finally {
+            db.endTransaction()
+        }
+    }
+
+    @TearDown
+    fun tearDown() {
+        db.close()
+    }
+
+    @Benchmark
+    fun findAll(): List<EntryRecord> {
+        return mapped.findAll("where habit = ?", habitId.toString())
+    }
+
+    @Benchmark
+    fun findAllReflection(): List<EntryRecord> {
+        return reflective.findAll("where habit = ?", habitId.toString())
+    }
+
+    @Benchmark
+    fun save() {
+        insertAndRollBack(mapped)
+    }
+
+    @Benchmark
+    fun saveReflection() {
+        insertAndRollBack(reflective)
+    }
+
+    /**
+     * Inserts one record for each day of history, after the existing ones, then rolls the
+     * transaction back, so that the table does not grow between invocations.
+     */
+    private fun insertAndRollBack(repository: Repository<EntryRecord>) {
+        db.beginTransaction()
+        try {
+            insertEntries(repository, historyLength)
+        } finally {
+            db.endTransaction()
+        }
+    }
+
+    private fun insertEntries(repository: Repository<EntryRecord>, offset: Int) {
+        for (i in 0 until historyLength) {
+            repository.save(
+                EntryRecord().apply {
+                    habitId = this@RepositoryBenchmark.habitId
+                    timestamp = (offset + i) * Timestamp.DAY_LENGTH
+                    value = 2
+                    notes = ""
+                }
+            )
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2016-2025 Álinson Santos Xavier <git@axavier.org>
+ *
+ * This file is part of Loop Habit Tracker.
+ *
+ * Loop Habit Tracker is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Loop Habit Tracker is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.isoron.uhabits.core.benchmarks
+
+import kotlinx.benchmark.Benchmark
+import kotlinx.benchmark.BenchmarkMode
+import kotlinx.benchmark.BenchmarkTimeUnit
+import kotlinx.benchmark.Mode
+import kotlinx.benchmark.OutputTimeUnit
+import kotlinx.benchmark.Param
+import kotlinx.benchmark.Scope
+import kotlinx.benchmark.Setup
+import kotlinx.benchmark.State
+import kotlinx.benchmark.TearDown
+import org.isoron.uhabits.core.DATABASE_VERSION
+import org.isoron.uhabits.core.database.Database
+import org.isoron.uhabits.core.database.JdbcDatabase
+import org.isoron.uhabits.core.database.MigrationHelper
+import org.isoron.uhabits.core.database.Repository
+import org.isoron.uhabits.core.io.HabitsCSVExporter
+import org.isoron.uhabits.core.models.Habit
+import org.isoron.uhabits.core.models.HabitList
+import org.isoron.uhabits.core.models.sqlite.SQLModelFactory
+import org.isoron.uhabits.core.models.sqlite.records.EntryRecord
+import java.io.File
+import java.nio.file.Files
+import java.sql.DriverManager
+
+/**
+ * Benchmarks operations on habits stored in an in-memory SQLite database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(BenchmarkTimeUnit.MILLISECONDS)
+class SQLiteBenchmark {
+    @Param("10", "50")
+    var habitCount = 0
+
+    @Param("365", "1825")
+    var historyLength = 0
+
+    private lateinit var db: Database
+    private lateinit var habitList: HabitList
+    private lateinit var habits: List<Habit>
+    private lateinit var entryRepository: Repository<EntryRecord>
+    private lateinit var exportDir: File
+
+    @Setup
+    fun setUp() {
+        db = JdbcDatabase(DriverManager.getConnection("jdbc:sqlite::memory:"))
+        db.execute("pragma user_version=8;")
+        MigrationHelper(db).migrateTo(DATABASE_VERSION)
+        val modelFactory = SQLModelFactory(db)
+        habitList = modelFactory.buildHabitList()
+        habits = SyntheticHabits.build(modelFactory, habitList, habitCount, historyLength)
+        entryRepository = modelFactory.buildRepetitionListRepository()
+        exportDir = Files.createTempDirectory("uhabits-benchmark").toFile()
+    }
+
+    @TearDown
+    fun tearDown() {
+        db.close()
+        exportDir.deleteRecursively()
+    }
+
+    @Benchmark
+    fun repositoryFindAll(): List<EntryRecord> {
+        return entryRepository.findAll("order by habit, timestamp")
+    }
+
+    @Benchmark
+    fun csvExport(): Long {
+        val file = File(HabitsCSVExporter(habitList, habits, exportDir).writeArchive())
+        val length = file.length()
+        file.delete()
+        return length
+    }
+}
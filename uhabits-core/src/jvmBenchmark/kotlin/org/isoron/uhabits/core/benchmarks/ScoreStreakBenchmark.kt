@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2016-2025 Álinson Santos Xavier <git@axavier.org>
+ *
+ * This file is part of Loop Habit Tracker.
+ *
+ * Loop Habit Tracker is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Loop Habit Tracker is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.isoron.uhabits.core.benchmarks
+
+import kotlinx.benchmark.Benchmark
+import kotlinx.benchmark.BenchmarkMode
+import kotlinx.benchmark.BenchmarkTimeUnit
+import kotlinx.benchmark.Mode
+import kotlinx.benchmark.OutputTimeUnit
+import kotlinx.benchmark.Param
+import kotlinx.benchmark.Scope
+import kotlinx.benchmark.Setup
+import kotlinx.benchmark.State
+import org.isoron.uhabits.core.models.Entry
+import org.isoron.uhabits.core.models.EntryList
+import org.isoron.uhabits.core.models.Frequency
+import org.isoron.uhabits.core.models.NumericalHabitType
+import org.isoron.uhabits.core.models.ScoreList
+import org.isoron.uhabits.core.models.Streak
+import org.isoron.uhabits.core.models.StreakList
+import org.isoron.uhabits.core.models.Timestamp
+import org.isoron.uhabits.core.utils.DateUtils.Companion.getToday
+import java.util.Random
+
+/**
+ * Benchmarks the recomputation of scores and streaks from the computed entries of a habit.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(BenchmarkTimeUnit.MICROSECONDS)
+class ScoreStreakBenchmark {
+    @Param("365", "1825", "3650")
+    var historyLength = 0
+
+    private val frequency = Frequency(3, 7)
+    private val original = EntryList()
+    private val computed = EntryList()
+    private val scores = ScoreList()
+    private val streaks = StreakList()
+    private lateinit var from: Timestamp
+    private lateinit var to: Timestamp
+    private var isTodayChecked = false
+
+    @Setup
+    fun setUp() {
+        original.addAll(
+            SyntheticHabits.buildEntries(Random(0), historyLength, isNumerical = false)
+        )
+        computed.recomputeFrom(original, frequency, isNumerical = false)
+        from = computed.getKnown().last().timestamp
+        to = getToday()
+    }
+
+    @Benchmark
+    fun scoreListRecompute(): ScoreList {
+        scores.recompute(
+            frequency = frequency,
+            isNumerical = false,
+            numericalHabitType = NumericalHabitType.AT_LEAST,
+            targetValue = 0.0,
+            computedEntries = computed,
+            from = from,
+            to = to
+        )
+        return scores
+    }
+
+    @Benchmark
+    fun streakListRecompute(): StreakList {
+        streaks.recompute(
+            computedEntries = computed,
+            from = from,
+            to = to,
+            isNumerical = false,
+            targetValue = 0.0,
+            targetType = NumericalHabitType.AT_LEAST
+        )
+        return streaks
+    }
+
+    @Benchmark
+    fun streakListSingleDayChange(): List<Streak> {
+        isTodayChecked = !isTodayChecked
+        original.add(Entry(to, if (isTodayChecked) Entry.YES_MANUAL else Entry.NO))
+        val changed = computed.recomputeFrom(original, frequency, false, changedDay = to)
+        streaks.recompute(
+            computedEntries = computed,
+            from = from,
+            to = to,
+            isNumerical = false,
+            targetValue = 0.0,
+            targetType = NumericalHabitType.AT_LEAST,
+            changed = changed
+        )
+        return streaks.getBest(10)
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2016-2025 Álinson Santos Xavier <git@axavier.org>
+ *
+ * This file is part of Loop Habit Tracker.
+ *
+ * Loop Habit Tracker is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Loop Habit Tracker is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.isoron.uhabits.core.benchmarks
+
+import org.isoron.uhabits.core.models.Entry
+import org.isoron.uhabits.core.models.Frequency
+import org.isoron.uhabits.core.models.Habit
+import org.isoron.uhabits.core.models.HabitList
+import org.isoron.uhabits.core.models.HabitType
+import org.isoron.uhabits.core.models.ModelFactory
+import org.isoron.uhabits.core.models.NumericalHabitType
+import org.isoron.uhabits.core.models.PaletteColor
+import org.isoron.uhabits.core.utils.DateUtils.Companion.getToday
+import java.util.Random
+
+/**
+ * Builds synthetic habits for the benchmarks. Histories are random, but the same seed always
+ * produces the same data, so that results are comparable across runs.
+ */
+object SyntheticHabits {
+    private val FREQUENCIES = listOf(
+        Frequency.DAILY,
+        Frequency(3, 7),
+        Frequency(5, 7),
+        Frequency(1, 7),
+        Frequency(10, 30)
+    )
+
+    /**
+     * Builds the given number of habits, adds them to the list and recomputes them. One in four
+     * habits is numerical.
+     */
+    fun build(
+        modelFactory: ModelFactory,
+        habitList: HabitList,
+        habitCount: Int,
+        historyLength: Int,
+        seed: Long = 0
+    ): List<Habit> {
+        val random = Random(seed)
+        return (0 until habitCount).map { i ->
+            val habit = modelFactory.buildHabit()
+            habit.name = "Habit $i"
+            habit.color = PaletteColor(i % 20)
+            habit.position = i
+            if (i % 4 == 3) {
+                habit.type = HabitType.NUMERICAL
+                habit.targetType = NumericalHabitType.AT_LEAST
+                habit.targetValue = 2.0
+                habit.unit = "miles"
+            } else {
+                habit.frequency = FREQUENCIES[i % FREQUENCIES.size]
+            }
+            habitList.add(habit)
+            habit.originalEntries.addAll(buildEntries(random, historyLength, habit.isNumerical))
+            habit.recompute()
+            habit
+        }
+    }
+
+    /**
+     * Builds a random history with the given number of days, ending today.
+     */
+    fun buildEntries(random: Random, historyLength: Int, isNumerical: Boolean): List<Entry> {
+        val today = getToday()
+        val entries = ArrayList<Entry>()
+        for (day in 0 until historyLength) {
+            val timestamp = today.minus(day)
+            val r = random.nextInt(100)
+            if (isNumerical) {
+                if (r < 70) entries.add(Entry(timestamp, random.nextInt(5000)))
+            } else if (r < 60) {
+                entries.add(Entry(timestamp, Entry.YES_MANUAL))
+            } else if (r < 65) {
+                entries.add(Entry(timestamp, Entry.SKIP))
+            } else if (r < 75) {
+                entries.add(Entry(timestamp, Entry.NO))
+            }
+        }
+        return entries
+    }
+}
@@ -20,4 +20,21 @@ package org.isoron.uhabits.core.commands
 
 interface Command {
     fun run()
+
+    /**
+     * Runs the command as part of a [CommandBatch]. Commands that modify the entries of a habit
+     * should register the habit in the batch instead of recomputing it immediately, so that a
+     * habit modified by several commands in the same batch is recomputed only once.
+     */
+    fun run(batch: CommandBatch) {
+        run()
+    }
+
+    /**
+     * Whether [run] only writes entries, without modifying habit lists or reading derived data.
+     * Consecutive commands of this kind run inside a single database transaction. Other commands
+     * may recompute habits, which must not happen while a transaction holds the database.
+     */
+    val isEntryWrite: Boolean
+        get() = false
 }
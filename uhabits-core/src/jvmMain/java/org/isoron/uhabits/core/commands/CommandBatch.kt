@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2016-2025 Álinson Santos Xavier <git@axavier.org>
+ *
+ * This file is part of Loop Habit Tracker.
+ *
+ * Loop Habit Tracker is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Loop Habit Tracker is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.isoron.uhabits.core.commands
+
+import org.isoron.uhabits.core.models.Habit
+import org.isoron.uhabits.core.models.HabitList
+import org.isoron.uhabits.core.models.Timestamp
+import java.util.Collections
+import java.util.IdentityHashMap
+
+/**
+ * Collects the habits modified by a batch of commands, so that each habit is recomputed and
+ * re-sorted only once, after all the commands in the batch have run.
+ */
+class CommandBatch {
+    private val changedFrom = IdentityHashMap<Habit, Timestamp?>()
+    private val isSingleDay = IdentityHashMap<Habit, Boolean>()
+    private val habitsByList = IdentityHashMap<HabitList, MutableList<Habit>>()
+
+    /**
+     * Schedules the given habit to be recomputed and re-sorted in the given list when the batch
+     * finishes. If [changedFrom] is null, the habit is recomputed from scratch. If [isSingleDay]
+     * is true, only the original entry at [changedFrom] has been modified; the computed entries
+     * are then updated locally, as long as no other day of the habit is modified in the batch.
+     */
+    fun recompute(
+        habitList: HabitList,
+        habit: Habit,
+        changedFrom: Timestamp? = null,
+        isSingleDay: Boolean = false
+    ) {
+        if (!this.changedFrom.containsKey(habit)) {
+            this.changedFrom[habit] = changedFrom
+            this.isSingleDay[habit] = isSingleDay && changedFrom != null
+        } else {
+            val previous = this.changedFrom[habit]
+            if (previous != null && (changedFrom == null || changedFrom.isOlderThan(previous))) {
+                this.changedFrom[habit] = changedFrom
+            }
+            if (!isSingleDay || changedFrom != previous) this.isSingleDay[habit] = false
+        }
+        val habits = habitsByList.getOrPut(habitList) { ArrayList() }
+        if (habits.none { it === habit }) habits.add(habit)
+    }
+
+    /**
+     * Recomputes and re-sorts all the habits scheduled by the commands in this batch. Habits that
+     * a later command in the batch removed from their list are skipped, so that no derived data
+     * is saved for deleted habits.
+     *
+     * Should not be called inside a database transaction, since recomputing a habit locks it
+     * while reading the database. If [invalidateOnly] is true, the habits are only marked as out
+     * of date instead, and are recomputed when next needed, which is safe inside a transaction.
+     */
+    fun finish(invalidateOnly: Boolean = false) {
+        val remaining = IdentityHashMap<HabitList, List<Habit>>()
+        val habitsToRecompute = Collections.newSetFromMap(IdentityHashMap<Habit, Boolean>())
+        for ((habitList, habits) in habitsByList) {
+            val inList = habits.filter { habitList.indexOf(it) >= 0 }
+            if (inList.isEmpty()) continue
+            remaining[habitList] = inList
+            habitsToRecompute.addAll(inList)
+        }
+        for (habit in habitsToRecompute) {
+            if (invalidateOnly) {
+                habit.invalidate()
+            } else {
+                habit.recompute(changedFrom[habit], isSingleDay[habit] == true)
+            }
+        }
+        for ((habitList, habits) in remaining) habitList.resort(habits)
+        changedFrom.clear()
+        isSingleDay.clear()
+        habitsByList.clear()
+    }
+}
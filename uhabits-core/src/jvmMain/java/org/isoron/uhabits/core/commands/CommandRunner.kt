@@ -19,29 +19,39 @@
 package org.isoron.uhabits.core.commands
 
 import org.isoron.uhabits.core.AppScope
+import org.isoron.uhabits.core.models.ModelFactory
 import org.isoron.uhabits.core.tasks.Task
 import org.isoron.uhabits.core.tasks.TaskRunner
+import java.util.ArrayList
 import java.util.LinkedList
 import javax.inject.Inject
 
+/**
+ * Runs commands in the background and notifies listeners after they finish.
+ *
+ * Commands submitted while a previous batch is still queued or running are coalesced into the
+ * next batch. Consecutive commands that only write entries run inside a single database
+ * transaction. After all commands have run, and the transactions have been committed, every
+ * affected habit is recomputed only once, and the listeners are notified once, through
+ * [Listener.onCommandsFinished].
+ */
 @AppScope
 open class CommandRunner
 @Inject constructor(
-    private val taskRunner: TaskRunner
+    private val taskRunner: TaskRunner,
+    private val modelFactory: ModelFactory? = null
 ) {
     private val listeners: LinkedList<Listener> = LinkedList()
+    private val pending = ArrayList<Command>()
+    private var isBatchScheduled = false
 
     open fun run(command: Command) {
-        taskRunner.execute(
-            object : Task {
-                override fun doInBackground() {
-                    command.run()
-                }
-                override fun onPostExecute() {
-                    notifyListeners(command)
-                }
-            }
-        )
+        synchronized(pending) {
+            pending.add(command)
+            if (isBatchScheduled) return
+            isBatchScheduled = true
+        }
+        taskRunner.execute(BatchTask())
     }
 
     fun addListener(l: Listener) {
@@ -49,7 +59,11 @@ open class CommandRunner
     }
 
     fun notifyListeners(command: Command) {
-        for (l in listeners) l.onCommandFinished(command)
+        notifyListeners(listOf(command))
+    }
+
+    fun notifyListeners(commands: List<Command>) {
+        for (l in listeners) l.onCommandsFinished(commands)
     }
 
     fun removeListener(l: Listener) {
@@ -58,5 +72,62 @@ open class CommandRunner
 
     interface Listener {
         fun onCommandFinished(command: Command)
+
+        /**
+         * Called once after a batch of commands has finished. By default, calls
+         * [onCommandFinished] for each command in the batch.
+         */
+        fun onCommandsFinished(commands: List<Command>) {
+            for (c in commands) onCommandFinished(c)
+        }
+    }
+
+    private inner class BatchTask : Task {
+        private val commands = ArrayList<Command>()
+
+        override fun doInBackground() {
+            try {
+                runCommands()
+            } finally {
+                // Released here, instead of in onPostExecute, so that a failing command, or a
+                // runner that skips onPostExecute, does not prevent later commands from running
+                val hasPending = synchronized(pending) {
+                    isBatchScheduled = pending.isNotEmpty()
+                    isBatchScheduled
+                }
+                if (hasPending) taskRunner.execute(BatchTask())
+            }
+        }
+
+        override fun onPostExecute() {
+            notifyListeners(commands)
+        }
+
+        private fun runCommands() {
+            synchronized(pending) {
+                commands.addAll(pending)
+                pending.clear()
+            }
+            val batch = CommandBatch()
+            var start = 0
+            while (start < commands.size) {
+                var end = start + 1
+                if (commands[start].isEntryWrite) {
+                    while (end < commands.size && commands[end].isEntryWrite) end++
+                }
+                val group = commands.subList(start, end)
+                val block = { for (c in group) c.run(batch) }
+                if (modelFactory != null && end - start > 1) {
+                    modelFactory.runInTransaction(block)
+                } else {
+                    block()
+                }
+                start = end
+            }
+
+            // Recomputing locks the habits while reading the database, so it must only happen
+            // after the transaction has been committed, to avoid deadlocks
+            batch.finish()
+        }
     }
 }
@@ -28,9 +28,17 @@ data class CreateHabitCommand(
     val model: Habit
 ) : Command {
     override fun run() {
+        apply().recompute()
+    }
+
+    override fun run(batch: CommandBatch) {
+        batch.recompute(habitList, apply())
+    }
+
+    private fun apply(): Habit {
         val habit = modelFactory.buildHabit()
         habit.copyFrom(model)
         habitList.add(habit)
-        habit.recompute()
+        return habit
     }
 }
@@ -31,9 +31,16 @@ data class CreateRepetitionCommand(
     val notes: String
 ) : Command {
     override fun run() {
-        val entries = habit.originalEntries
-        entries.add(Entry(timestamp, value, notes))
-        habit.recompute()
-        habitList.resort()
+        habit.originalEntries.add(Entry(timestamp, value, notes))
+        habit.recompute(changedFrom = timestamp, isSingleDay = true)
+        habitList.resort(habit)
+    }
+
+    override val isEntryWrite: Boolean
+        get() = true
+
+    override fun run(batch: CommandBatch) {
+        habit.originalEntries.add(Entry(timestamp, value, notes))
+        batch.recompute(habitList, habit, changedFrom = timestamp, isSingleDay = true)
     }
 }
@@ -28,11 +28,21 @@ data class EditHabitCommand(
     val modified: Habit
 ) : Command {
     override fun run() {
+        val habit = apply()
+        habit.recompute()
+        habitList.resort(habit)
+    }
+
+    override fun run(batch: CommandBatch) {
+        batch.recompute(habitList, apply())
+    }
+
+    private fun apply(): Habit {
         val habit = habitList.getById(habitId) ?: throw HabitNotFoundException()
         habit.copyFrom(modified)
+        habit.invalidate()
         habitList.update(habit)
         habit.observable.notifyListeners()
-        habit.recompute()
-        habitList.resort()
+        return habit
     }
 }
@@ -40,6 +40,23 @@ interface Database {
 
     fun insert(tableName: String, values: Map<String, Any?>): Long?
 
+    /**
+     * Inserts many rows into the given table at once, inside a single transaction. Each row
+     * contains one value for each of the given columns, in the same order.
+     *
+     * Implementations should compile the insert statement only once and reuse it for every row,
+     * which is much faster than calling [insert] repeatedly.
+     */
+    fun insertBatch(tableName: String, columns: Array<String>, rows: List<Array<out Any?>>) {
+        beginTransaction()
+        try {
+            for (row in rows) insert(tableName, columns.indices.associate { columns[it] to row[it] })
+            setTransactionSuccessful()
+        } finally {
+            endTransaction()
+        }
+    }
+
     fun delete(tableName: String, where: String, vararg params: String)
 
     fun execute(query: String, vararg params: Any)
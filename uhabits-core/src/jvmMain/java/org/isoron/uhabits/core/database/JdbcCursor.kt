@@ -21,12 +21,17 @@ package org.isoron.uhabits.core.database
 import java.sql.ResultSet
 import java.sql.SQLException
 
-class JdbcCursor(private val resultSet: ResultSet) : Cursor {
+class JdbcCursor(
+    private val resultSet: ResultSet,
+    private val onClose: (() -> Unit)? = null
+) : Cursor {
     override fun close() {
         try {
             resultSet.close()
         } catch (e: SQLException) {
             throw RuntimeException(e)
+        } finally {
+            onClose?.invoke()
         }
     }
 
@@ -18,20 +18,46 @@
  */
 package org.isoron.uhabits.core.database
 
-import org.apache.commons.lang3.StringUtils
 import java.io.File
 import java.sql.Connection
 import java.sql.PreparedStatement
 import java.sql.SQLException
 import java.sql.Types
-import java.util.ArrayList
+import java.util.LinkedHashMap
 
+/**
+ * Database backed by a JDBC connection.
+ *
+ * Prepared statements are kept in a bounded cache, indexed by their SQL text, so that queries
+ * which are executed repeatedly are only compiled once. A statement is removed from the cache
+ * while in use, and is returned to it afterwards. Statements evicted from the cache, and all
+ * statements remaining in the cache when the database is closed, are closed immediately.
+ */
 class JdbcDatabase(private val connection: Connection) : Database {
     private var transactionSuccessful = false
+    private var transactionDepth = 0
+    private var transactionFailed = false
+    private var isClosed = false
+
+    private val statements = object : LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+        override fun removeEldestEntry(
+            eldest: MutableMap.MutableEntry<String, PreparedStatement>
+        ): Boolean {
+            if (size <= STATEMENT_CACHE_SIZE) return false
+            closeStatement(eldest.value)
+            return true
+        }
+    }
+
     override fun query(q: String, vararg params: String): Cursor {
         return try {
-            val st = buildStatement(q, params)
-            JdbcCursor(st.executeQuery())
+            val st = acquireStatement(q, params)
+            try {
+                JdbcCursor(st.executeQuery()) { releaseStatement(q, st) }
+            } catch (e: Exception) {
+                closeStatement(st)
+                throw e
+            }
         } catch (e: SQLException) {
             throw RuntimeException(e)
         }
@@ -44,21 +70,17 @@ class JdbcDatabase(private val connection: Connection) : Database {
         vararg params: String
     ): Int {
         return try {
-            val fields = ArrayList<String?>()
-            val valuesStr = ArrayList<String>()
+            val query = StringBuilder("update ").append(tableName).append(" set ")
+            val valuesStr = arrayOfNulls<String>(values.size + params.size)
+            var index = 0
             for ((key, value) in values) {
-                fields.add("$key=?")
-                valuesStr.add(value.toString())
+                if (index > 0) query.append(", ")
+                query.append(key).append("=?")
+                valuesStr[index++] = value.toString()
             }
-            valuesStr.addAll(listOf(*params))
-            val query = String.format(
-                "update %s set %s where %s",
-                tableName,
-                StringUtils.join(fields, ", "),
-                where
-            )
-            val st = buildStatement(query, valuesStr.toTypedArray())
-            st.executeUpdate()
+            for (param in params) valuesStr[index++] = param
+            query.append(" where ").append(where)
+            withStatement(query.toString(), valuesStr) { st -> st.executeUpdate() }
         } catch (e: SQLException) {
             throw RuntimeException(e)
         }
@@ -66,46 +88,107 @@ class JdbcDatabase(private val connection: Connection) : Database {
 
     override fun insert(tableName: String, values: Map<String, Any?>): Long? {
         return try {
-            val fields = ArrayList<String?>()
-            val params = ArrayList<Any?>()
-            val questionMarks = ArrayList<String?>()
+            val query = StringBuilder("insert into ").append(tableName).append("(")
+            val params = arrayOfNulls<Any>(values.size)
+            var index = 0
             for ((key, value) in values) {
-                fields.add(key)
-                params.add(value)
-                questionMarks.add("?")
+                if (index > 0) query.append(", ")
+                query.append(key)
+                params[index++] = value
+            }
+            query.append(") values(")
+            for (i in params.indices) query.append(if (i == 0) "?" else ", ?")
+            query.append(")")
+            withStatement(query.toString(), params) { st ->
+                st.execute()
+                st.generatedKeys.use { keys -> if (keys.next()) keys.getLong(1) else null }
             }
-            val query = String.format(
-                "insert into %s(%s) values(%s)",
-                tableName,
-                StringUtils.join(fields, ", "),
-                StringUtils.join(questionMarks, ", ")
-            )
-            val st = buildStatement(query, params.toTypedArray())
-            st.execute()
-            var id: Long? = null
-            val keys = st.generatedKeys
-            if (keys.next()) id = keys.getLong(1)
-            id
         } catch (e: SQLException) {
             throw RuntimeException(e)
         }
     }
 
+    override fun insertBatch(
+        tableName: String,
+        columns: Array<String>,
+        rows: List<Array<out Any?>>
+    ) {
+        if (rows.isEmpty()) return
+        val query = StringBuilder("insert into ").append(tableName).append("(")
+        for (i in columns.indices) {
+            if (i > 0) query.append(", ")
+            query.append(columns[i])
+        }
+        query.append(") values(")
+        for (i in columns.indices) query.append(if (i == 0) "?" else ", ?")
+        query.append(")")
+
+        // Start a transaction, unless the caller has already done so
+        val ownTransaction = synchronized(this) { connection.autoCommit }
+        if (ownTransaction) beginTransaction()
+        try {
+            withStatement(query.toString(), emptyArray()) { st ->
+                for (row in rows) {
+                    bindParameters(st, row)
+                    st.addBatch()
+                }
+                st.executeBatch()
+            }
+            if (ownTransaction) setTransactionSuccessful()
+        } catch (e: SQLException) {
+            throw RuntimeException(e)
+        } finally {
+            if (ownTransaction) endTransaction()
+        }
+    }
+
     override fun delete(tableName: String, where: String, vararg params: String) {
-        val query = String.format("delete from %s where %s", tableName, where)
-        execute(query, *params)
+        execute("delete from $tableName where $where", *params)
     }
 
     override fun execute(query: String, vararg params: Any) {
         try {
-            buildStatement(query, params).execute()
+            withStatement(query, params) { st -> st.execute() }
         } catch (e: SQLException) {
             throw RuntimeException(e)
         }
     }
 
-    private fun buildStatement(query: String, params: Array<out Any?>): PreparedStatement {
-        val st = connection.prepareStatement(query)
+    private inline fun <R> withStatement(
+        query: String,
+        params: Array<out Any?>,
+        block: (PreparedStatement) -> R
+    ): R {
+        val st = acquireStatement(query, params)
+        try {
+            val result = block(st)
+            releaseStatement(query, st)
+            return result
+        } catch (e: Exception) {
+            closeStatement(st)
+            throw e
+        }
+    }
+
+    /**
+     * Returns a prepared statement for the given query, with the given parameters already bound.
+     * The statement is taken from the cache if available, and must later be given back through
+     * [releaseStatement].
+     */
+    private fun acquireStatement(query: String, params: Array<out Any?>): PreparedStatement {
+        val st = synchronized(statements) { statements.remove(query) }
+            ?: connection.prepareStatement(query)
+        try {
+            bindParameters(st, params)
+        } catch (e: Exception) {
+            closeStatement(st)
+            throw e
+        }
+        return st
+    }
+
+    private fun bindParameters(st: PreparedStatement, params: Array<out Any?>) {
+        st.clearParameters()
         var index = 1
         for (param in params) {
             when (param) {
@@ -117,13 +200,15 @@ class JdbcDatabase(private val connection: Connection) : Database {
                 else -> throw IllegalArgumentException()
             }
         }
-        return st
     }
 
     @Synchronized
     override fun beginTransaction() {
         try {
-            connection.autoCommit = false
+            if (transactionDepth++ == 0) {
+                connection.autoCommit = false
+                transactionFailed = false
+            }
             transactionSuccessful = false
         } catch (e: SQLException) {
             throw RuntimeException(e)
@@ -138,15 +223,44 @@ class JdbcDatabase(private val connection: Connection) : Database {
     @Synchronized
     override fun endTransaction() {
         try {
-            if (transactionSuccessful) connection.commit() else connection.rollback()
+            // Nested transactions are committed only by the outermost one, and are rolled
+            // back entirely if any of them was not marked as successful.
+            if (!transactionSuccessful) transactionFailed = true
+            transactionSuccessful = false
+            if (--transactionDepth > 0) return
+            if (transactionFailed) connection.rollback() else connection.commit()
             connection.autoCommit = true
         } catch (e: SQLException) {
             throw RuntimeException(e)
         }
     }
 
+    private fun releaseStatement(query: String, st: PreparedStatement) {
+        synchronized(statements) {
+            if (isClosed) {
+                closeStatement(st)
+                return
+            }
+            val previous = statements.put(query, st)
+            if (previous != null && previous !== st) closeStatement(previous)
+        }
+    }
+
+    private fun closeStatement(st: PreparedStatement) {
+        try {
+            st.close()
+        } catch (e: SQLException) {
+            // The statement is no longer needed, so errors may be safely ignored
+        }
+    }
+
     override fun close() {
         try {
+            synchronized(statements) {
+                isClosed = true
+                for (st in statements.values) closeStatement(st)
+                statements.clear()
+            }
             connection.close()
         } catch (e: SQLException) {
             throw RuntimeException(e)
@@ -163,4 +277,11 @@ class JdbcDatabase(private val connection: Connection) : Database {
 
     override val file: File?
         get() = null
+
+    companion object {
+        /**
+         * Maximum number of prepared statements kept in the cache.
+         */
+        const val STATEMENT_CACHE_SIZE = 32
+    }
 }
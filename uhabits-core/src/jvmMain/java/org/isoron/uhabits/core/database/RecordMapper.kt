@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) 2016-2025 Álinson Santos Xavier <git@axavier.org>
+ *
+ * This file is part of Loop Habit Tracker.
+ *
+ * Loop Habit Tracker is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Loop Habit Tracker is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.isoron.uhabits.core.database
+
+/**
+ * Converts records of a given class to and from database rows without relying on reflection.
+ *
+ * Implementations are attached to a record class through the [Table] annotation and must have a
+ * public constructor without arguments. When a mapper is available, [Repository] uses it instead
+ * of reading and writing the annotated fields reflectively, which is considerably faster when
+ * many records are loaded at once.
+ */
+interface RecordMapper<T> {
+    /**
+     * Names of the columns of the table, in the order expected by [read].
+     */
+    val columns: Array<String>
+
+    /**
+     * Builds a new record from the current row of the cursor. The row contains the columns
+     * listed in [columns], in the same order.
+     */
+    fun read(cursor: Cursor): T
+
+    /**
+     * Stores the value of each column of the given record into the provided map.
+     */
+    fun write(record: T, values: MutableMap<String, Any?>)
+
+    fun getId(record: T): Long?
+
+    fun setId(record: T, id: Long?)
+}
@@ -26,9 +26,17 @@ import java.util.ArrayList
 import java.util.HashMap
 import java.util.LinkedList
 
+/**
+ * Loads and stores records of the given class.
+ *
+ * Records are converted to and from database rows by the [RecordMapper] declared in the [Table]
+ * annotation of the class. If no mapper is declared, or if null is explicitly provided, fields
+ * annotated with [Column] are read and written through reflection instead.
+ */
 class Repository<T>(
     private val klass: Class<T>,
-    private val db: Database
+    private val db: Database,
+    private val mapper: RecordMapper<T>? = findMapper(klass)
 ) {
     /**
      * Returns the record that has the id provided. If no record is found, returns null.
@@ -72,8 +80,9 @@ class Repository<T>(
      * Executes the given callback inside a database transaction.
      *
      * If the callback terminates without throwing any exceptions, the transaction is considered
-     * successful. If any exceptions are thrown, the transaction is aborted. Nesting transactions
-     * is not allowed.
+     * successful. If any exceptions are thrown, the transaction is aborted. If called inside
+     * another transaction, the callback becomes part of it, and is only committed together with
+     * the outer transaction.
      */
     fun executeAsTransaction(callback: Runnable) {
         db.beginTransaction()
@@ -99,19 +108,53 @@ class Repository<T>(
      */
     fun save(record: T) {
         try {
-            val fields = getFields()
-            val columns = getColumnNames()
             val values: MutableMap<String, Any?> = HashMap()
-            for (i in fields.indices) values[columns[i]] = fields[i][record]
-            var id = getIdField()[record] as Long?
+            var id: Long?
+            if (mapper != null) {
+                mapper.write(record, values)
+                id = mapper.getId(record)
+            } else {
+                val fields = getFields()
+                val columns = getColumnNames()
+                for (i in fields.indices) values[columns[i]] = fields[i][record]
+                id = getIdField()[record] as Long?
+            }
             var affectedRows = 0
             if (id != null) {
                 affectedRows = db.update(getTableName(), values, "${getIdName()}=?", id.toString())
             }
             if (id == null || affectedRows == 0) {
                 id = db.insert(getTableName(), values)
-                getIdField()[record] = id
+                setId(record, id)
+            }
+        } catch (e: Exception) {
+            throw RuntimeException(e)
+        }
+    }
+
+    /**
+     * Inserts all the given records on the database, using a single batch operation.
+     *
+     * Unlike [save], records are always inserted, never updated, and the ids of records that
+     * have a null id are not updated after insertion. This method is meant for quickly storing
+     * large amounts of new records, such as during imports.
+     */
+    fun saveAll(records: Collection<T>) {
+        if (records.isEmpty()) return
+        try {
+            val columns = getColumnNames()
+            val rows = ArrayList<Array<out Any?>>(records.size)
+            if (mapper != null) {
+                val values: MutableMap<String, Any?> = HashMap()
+                for (record in records) {
+                    mapper.write(record, values)
+                    rows.add(Array(columns.size) { values[columns[it]] })
+                }
+            } else {
+                val fields = getFields()
+                for (record in records) rows.add(Array(fields.size) { fields[it][record] })
             }
+            db.insertBatch(getTableName(), columns, rows)
         } catch (e: Exception) {
             throw RuntimeException(e)
         }
@@ -122,14 +165,19 @@ class Repository<T>(
      */
     fun remove(record: T) {
         try {
-            val id = getIdField()[record] as Long?
+            val id = if (mapper != null) mapper.getId(record) else getIdField()[record] as Long?
             db.delete(getTableName(), "${getIdName()}=?", id.toString())
-            getIdField()[record] = null
+            setId(record, null)
         } catch (e: Exception) {
             throw RuntimeException(e)
         }
     }
 
+    private fun setId(record: T, id: Long?) {
+        if (mapper != null) mapper.setId(record, id)
+        else getIdField()[record] = id
+    }
+
     private fun cursorToMultipleRecords(c: Cursor): List<T> {
         val records: MutableList<T> = LinkedList()
         while (c.moveToNext()) records.add(cursorToSingleRecord(c))
@@ -138,6 +186,7 @@ class Repository<T>(
 
     @Suppress("UNCHECKED_CAST")
     private fun cursorToSingleRecord(cursor: Cursor): T {
+        if (mapper != null) return mapper.read(cursor)
         return try {
             val constructor = klass.declaredConstructors[0]
             constructor.isAccessible = true
@@ -192,6 +241,9 @@ class Repository<T>(
     private var cacheColumnNames: Array<String>? = null
 
     private fun getColumnNames(): Array<String> {
+        if (cacheColumnNames == null && mapper != null) {
+            cacheColumnNames = mapper.columns
+        }
         if (cacheColumnNames == null) {
             val names: MutableList<String> = ArrayList()
             val columns = fieldColumnPairs
@@ -253,4 +305,22 @@ class Repository<T>(
         if (t == null) throw RuntimeException("Table annotation not found")
         return t
     }
+
+    companion object {
+        /**
+         * Returns the mapper declared in the [Table] annotation of the given class, or null if
+         * the class does not declare one.
+         */
+        @Suppress("UNCHECKED_CAST")
+        fun <T> findMapper(klass: Class<T>): RecordMapper<T>? {
+            val table = klass.getAnnotation(Table::class.java) ?: return null
+            val mapperClass = table.mapper.java
+            if (mapperClass == RecordMapper::class.java) return null
+            return try {
+                mapperClass.getDeclaredConstructor().newInstance() as RecordMapper<T>
+            } catch (e: Exception) {
+                throw RuntimeException(e)
+            }
+        }
+    }
 }
@@ -18,6 +18,12 @@
  */
 package org.isoron.uhabits.core.database
 
+import kotlin.reflect.KClass
+
 @Target(AnnotationTarget.ANNOTATION_CLASS, AnnotationTarget.CLASS)
 @Retention(AnnotationRetention.RUNTIME)
-annotation class Table(val name: String, val id: String = "id")
+annotation class Table(
+    val name: String,
+    val id: String = "id",
+    val mapper: KClass<out RecordMapper<*>> = RecordMapper::class
+)
@@ -91,7 +91,8 @@ class HabitBullCSVImporter
             }
         }
 
-        map.forEach { (_, habit) -> habit.recompute() }
+        // Imports usually run inside a transaction, so habits are only invalidated here
+        map.forEach { (_, habit) -> habit.invalidate() }
     }
 
     private fun parseTimestamp(rawValue: String): Timestamp {
@@ -23,7 +23,7 @@ import org.isoron.uhabits.core.models.Entry
 import org.isoron.uhabits.core.models.EntryList
 import org.isoron.uhabits.core.models.Habit
 import org.isoron.uhabits.core.models.HabitList
-import org.isoron.uhabits.core.models.Score
+import org.isoron.uhabits.core.models.ScoreSlice
 import org.isoron.uhabits.core.models.Timestamp
 import org.isoron.uhabits.core.utils.DateFormats
 import org.isoron.uhabits.core.utils.DateUtils
@@ -111,9 +111,10 @@ class HabitsCSVExporter(
         if (known.isNotEmpty()) oldest = known[known.size - 1].timestamp
         val csv = CSVWriter(out)
         csv.writeNext(arrayOf("Date", "Score"), false)
-        for ((timestamp1, value) in habit.scores.getByInterval(oldest, today)) {
-            val timestamp = dateFormat.format(timestamp1.unixTime)
-            val score = String.format(Locale.US, "%.4f", value)
+        val scores = habit.scores.getSliceByInterval(oldest, today)
+        for (i in 0 until scores.size) {
+            val timestamp = dateFormat.format(scores.to.unixTime - i * Timestamp.DAY_LENGTH)
+            val score = String.format(Locale.US, "%.4f", scores[i])
             csv.writeNext(arrayOf(timestamp, score), false)
         }
         csv.close()
@@ -164,10 +165,10 @@ class HabitsCSVExporter(
         val oldest = timeframe[0]
         val newest = DateUtils.getTodayWithOffset()
         val checkmarks: MutableList<ArrayList<Entry>> = ArrayList()
-        val scores: MutableList<ArrayList<Score>> = ArrayList()
+        val scores: MutableList<ScoreSlice> = ArrayList()
         for (habit in selectedHabits) {
             checkmarks.add(ArrayList(habit.computedEntries.getByInterval(oldest, newest)))
-            scores.add(ArrayList(habit.scores.getByInterval(oldest, newest)))
+            scores.add(habit.scores.getSliceByInterval(oldest, newest))
         }
 
         val days = oldest.daysUntil(newest)
@@ -182,7 +183,7 @@ class HabitsCSVExporter(
             for (j in selectedHabits.indices) {
                 checksWriter.write(checkmarks[j][i].formattedValue)
                 checksWriter.write(delimiter)
-                val score = String.format(Locale.US, "%.4f", scores[j][i].value)
+                val score = String.format(Locale.US, "%.4f", scores[j][i])
                 scoresWriter.write(score)
                 scoresWriter.write(delimiter)
             }
@@ -20,6 +20,7 @@ package org.isoron.uhabits.core.io
 
 import org.isoron.uhabits.core.AppScope
 import org.isoron.uhabits.core.DATABASE_VERSION
+import org.isoron.uhabits.core.commands.CommandBatch
 import org.isoron.uhabits.core.commands.CommandRunner
 import org.isoron.uhabits.core.commands.CreateHabitCommand
 import org.isoron.uhabits.core.commands.EditHabitCommand
@@ -76,6 +77,9 @@ class LoopDBImporter
         val habitsRepository = Repository(HabitRecord::class.java, db)
         val entryRepository = Repository(EntryRecord::class.java, db)
 
+        // Imports usually run inside a transaction, so habits are not recomputed here. They are
+        // only invalidated, once all the entries have been imported.
+        val batch = CommandBatch()
         for (habitRecord in habitsRepository.findAll("order by position")) {
             var habit = habitList.getByUUID(habitRecord.uuid)
             val entryRecords = entryRepository.findAll("where habit = ?", habitRecord.id.toString())
@@ -84,12 +88,12 @@ class LoopDBImporter
                 habit = modelFactory.buildHabit()
                 habitRecord.id = null
                 habitRecord.copyTo(habit)
-                CreateHabitCommand(modelFactory, habitList, habit).run()
+                CreateHabitCommand(modelFactory, habitList, habit).run(batch)
             } else {
                 val modified = modelFactory.buildHabit()
                 habitRecord.id = habit.id
                 habitRecord.copyTo(modified)
-                EditHabitCommand(habitList, habit.id!!, modified).run()
+                EditHabitCommand(habitList, habit.id!!, modified).run(batch)
             }
 
             // Reload saved version of the habit
@@ -97,15 +101,18 @@ class LoopDBImporter
             val entries = habit.originalEntries
 
             // Import entries
+            val modified = ArrayList<Entry>()
             for (r in entryRecords) {
                 val t = Timestamp(r.timestamp!!)
                 val (_, value, notes) = entries.get(t)
                 if (value != r.value || notes != r.notes) {
-                    entries.add(Entry(t, r.value!!, r.notes ?: ""))
+                    modified.add(Entry(t, r.value!!, r.notes ?: ""))
                 }
             }
-            habit.recompute()
+            entries.addAll(modified)
+            batch.recompute(habitList, habit)
         }
+        batch.finish(invalidateOnly = true)
         habitList.resort()
         db.close()
     }
@@ -128,6 +128,7 @@ class RewireDBImporter
                 rewireHabitId.toString()
             )
             if (!c.moveToNext()) return
+            val entries = ArrayList<Entry>()
             do {
                 val date = c.getString(0)
                 val year = date!!.substring(0, 4).toInt()
@@ -135,8 +136,9 @@ class RewireDBImporter
                 val day = date.substring(6, 8).toInt()
                 val cal = DateUtils.getStartOfTodayCalendar()
                 cal[year, month - 1] = day
-                habit.originalEntries.add(Entry(Timestamp(cal), Entry.YES_MANUAL))
+                entries.add(Entry(Timestamp(cal), Entry.YES_MANUAL))
             } while (c.moveToNext())
+            habit.originalEntries.addAll(entries)
         } finally {
             c?.close()
         }
@@ -75,14 +75,16 @@ class TickmateDBImporter @Inject constructor(
                 tickmateTrackId.toString()
             )
             if (!c.moveToNext()) return
+            val entries = ArrayList<Entry>()
             do {
                 val year = c.getInt(0)!!
                 val month = c.getInt(1)!!
                 val day = c.getInt(2)!!
                 val cal = DateUtils.getStartOfTodayCalendar()
                 cal[year, month] = day
-                habit.originalEntries.add(Entry(Timestamp(cal), Entry.YES_MANUAL))
+                entries.add(Entry(Timestamp(cal), Entry.YES_MANUAL))
             } while (c.moveToNext())
+            habit.originalEntries.addAll(entries)
         } finally {
             c?.close()
         }
@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2016-2025 Álinson Santos Xavier <git@axavier.org>
+ *
+ * This file is part of Loop Habit Tracker.
+ *
+ * Loop Habit Tracker is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Loop Habit Tracker is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.isoron.uhabits.core.models
+
+/**
+ * Persistent storage for the scores and streaks of habits.
+ *
+ * Computing scores and streaks requires going through the entire history of a habit. Storing
+ * them allows the application to skip this work, for example across restarts, when nothing that
+ * affects them has changed since they were last computed. Snapshots are removed through
+ * [invalidate] whenever the entries of a habit change, and each snapshot is stored along with a
+ * key describing the parameters of the habit it was computed with, so that it is only returned
+ * if the key still matches. Snapshots do not depend on the current day: they cover an interval
+ * that ends at some day, and may be extended to later days by the caller.
+ */
+interface DerivedDataCache {
+    /**
+     * Returns the snapshot stored for the given habit, or null if there is no snapshot or if it
+     * was computed with different parameters.
+     */
+    fun load(habitId: Long, key: Long): Snapshot?
+
+    /**
+     * Returns a number that changes whenever the snapshot of the given habit is invalidated. It
+     * should be read before reading the data from which a snapshot is computed, and passed to
+     * [save] along with the snapshot.
+     */
+    fun getGeneration(habitId: Long): Long
+
+    /**
+     * Stores the snapshot for the given habit, replacing any previous one, unless the snapshot
+     * has been invalidated since [generation] was obtained through [getGeneration]. In that case,
+     * the snapshot may have been computed from outdated data, and is discarded.
+     */
+    fun save(habitId: Long, key: Long, snapshot: Snapshot, generation: Long)
+
+    /**
+     * Removes the snapshot stored for the given habit, if any.
+     */
+    fun invalidate(habitId: Long)
+
+    /**
+     * Scores and streaks of a habit, computed over the interval covered by [scores].
+     */
+    class Snapshot(
+        val scores: ScoreList.Snapshot,
+        val streaks: List<Streak>
+    )
+}
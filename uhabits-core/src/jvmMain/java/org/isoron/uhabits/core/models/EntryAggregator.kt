@@ -0,0 +1,165 @@
+/*
+ * Copyright (C) 2016-2025 Álinson Santos Xavier <git@axavier.org>
+ *
+ * This file is part of Loop Habit Tracker.
+ *
+ * Loop Habit Tracker is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Loop Habit Tracker is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.isoron.uhabits.core.models
+
+import org.isoron.platform.time.EpochDays
+import org.isoron.uhabits.core.models.Entry.Companion.SKIP
+import org.isoron.uhabits.core.models.Entry.Companion.YES_MANUAL
+import org.isoron.uhabits.core.utils.DateUtils.TruncateField
+import kotlin.math.max
+
+/**
+ * Sums and numbers of skipped days of a range of entries, grouped by day, week, month, quarter
+ * and year.
+ *
+ * All groupings are computed in a single pass over the values of the entries, as returned by
+ * [EntryList.getValuesByInterval], without allocating any objects or calendars for each day.
+ * Dates are tracked incrementally, and [EpochDays] is only consulted when the month changes.
+ * The results are the same as calling [groupedSum] and [countSkippedDays] on the corresponding
+ * list of entries, for each [TruncateField].
+ */
+class EntryAggregator(
+    values: IntArray,
+    to: Timestamp,
+    firstWeekday: Int,
+    isNumerical: Boolean
+) {
+    private val groups = Array(FIELDS.size) { Groups(maxGroupCount(FIELDS[it], values.size)) }
+
+    init {
+        var day = to.unixTime / DAY_LENGTH
+        var year = EpochDays.year(day)
+        var month = EpochDays.month(day)
+        var dayOfMonth = EpochDays.dayOfMonth(day)
+        var weekday = EpochDays.dayOfWeek(day)
+        var monthStart = 0L
+        var quarterStart = 0L
+        var yearStart = 0L
+        var isMonthKnown = false
+        for (value in values) {
+            if (!isMonthKnown) {
+                monthStart = EpochDays.fromCivil(year, month, 1)
+                quarterStart = EpochDays.fromCivil(year, (month - 1) / 3 * 3 + 1, 1)
+                yearStart = EpochDays.fromCivil(year, 1, 1)
+                isMonthKnown = true
+            }
+            val amount = if (isNumerical) {
+                if (value == SKIP) 0 else max(0, value)
+            } else {
+                if (value == YES_MANUAL) 1000 else 0
+            }
+            val skipped = if (value == SKIP) 1 else 0
+            val weekStart = day - Math.floorMod(weekday - firstWeekday, 7)
+            groups[TruncateField.DAY.ordinal].add(day, amount, skipped)
+            groups[TruncateField.WEEK_NUMBER.ordinal].add(weekStart, amount, skipped)
+            groups[TruncateField.MONTH.ordinal].add(monthStart, amount, skipped)
+            groups[TruncateField.QUARTER.ordinal].add(quarterStart, amount, skipped)
+            groups[TruncateField.YEAR.ordinal].add(yearStart, amount, skipped)
+
+            // Move to the previous day
+            day--
+            weekday = if (weekday == 1) 7 else weekday - 1
+            dayOfMonth--
+            if (dayOfMonth == 0) {
+                month--
+                if (month == 0) {
+                    month = 12
+                    year--
+                }
+                dayOfMonth = EpochDays.monthLength(year, month)
+                isMonthKnown = false
+            }
+        }
+    }
+
+    /**
+     * Returns one entry for each group, containing the sum of the values in that group. The
+     * timestamp of each entry is the first day of the group. The first element corresponds to
+     * the newest group. The values are the same as in [groupedSum].
+     */
+    fun getSums(field: TruncateField): List<Entry> {
+        val g = groups[field.ordinal]
+        return List(g.count) { Entry(Timestamp(g.starts[it] * DAY_LENGTH), g.sums[it]) }
+    }
+
+    /**
+     * Returns one entry for each group, containing the number of skipped days in that group,
+     * in the same order as [getSums].
+     */
+    fun getSkippedDays(field: TruncateField): List<Entry> {
+        val g = groups[field.ordinal]
+        return List(g.count) { Entry(Timestamp(g.starts[it] * DAY_LENGTH), g.skips[it]) }
+    }
+
+    /**
+     * Returns the sum of the values in the newest group, or zero if there are no entries.
+     */
+    fun getNewestSum(field: TruncateField): Int {
+        val g = groups[field.ordinal]
+        return if (g.count > 0) g.sums[0] else 0
+    }
+
+    /**
+     * Returns the number of skipped days in the newest group, or zero if there are no entries.
+     */
+    fun getNewestSkippedDays(field: TruncateField): Int {
+        val g = groups[field.ordinal]
+        return if (g.count > 0) g.skips[0] else 0
+    }
+
+    /**
+     * Groups of a single field, newest first. Since days are visited from newest to oldest, a
+     * new group begins whenever the first day of the group changes.
+     */
+    private class Groups(capacity: Int) {
+        val starts = LongArray(capacity)
+        val sums = IntArray(capacity)
+        val skips = IntArray(capacity)
+        var count = 0
+
+        fun add(start: Long, amount: Int, skipped: Int) {
+            if (count == 0 || starts[count - 1] != start) {
+                starts[count] = start
+                count++
+            }
+            sums[count - 1] += amount
+            skips[count - 1] += skipped
+        }
+    }
+
+    companion object {
+        private const val DAY_LENGTH = Timestamp.DAY_LENGTH
+        private val FIELDS = TruncateField.values()
+
+        /**
+         * Returns the maximum number of groups that a range of the given number of days may
+         * touch.
+         */
+        private fun maxGroupCount(field: TruncateField, days: Int): Int {
+            return when (field) {
+                TruncateField.DAY -> days
+                TruncateField.WEEK_NUMBER -> days / 7 + 2
+                TruncateField.MONTH -> days / 28 + 2
+                TruncateField.QUARTER -> days / 89 + 2
+                TruncateField.YEAR -> days / 365 + 2
+            }
+        }
+    }
+}
@@ -19,6 +19,7 @@
 
 package org.isoron.uhabits.core.models
 
+import org.isoron.platform.time.EpochDays
 import org.isoron.uhabits.core.models.Entry.Companion.SKIP
 import org.isoron.uhabits.core.models.Entry.Companion.UNKNOWN
 import org.isoron.uhabits.core.models.Entry.Companion.YES_AUTO
@@ -27,14 +28,40 @@ import org.isoron.uhabits.core.utils.DateUtils
 import java.util.ArrayList
 import java.util.Calendar
 import javax.annotation.concurrent.ThreadSafe
-import kotlin.collections.set
 import kotlin.math.max
 import kotlin.math.min
 
 @ThreadSafe
 open class EntryList {
 
-    private val entriesByTimestamp: HashMap<Timestamp, Entry> = HashMap()
+    /**
+     * Entries are stored densely, with one slot for each day, starting at [firstDay] (the number
+     * of days since the epoch corresponding to the first slot). For each slot, [values] holds the
+     * value of the entry and [noteIds] holds the position of its notes in [notePool], or ABSENT if
+     * no entry has been added for that day. Notes are interned, so that repeated notes (and, in
+     * particular, the empty notes shared by most entries) are stored only once.
+     */
+    private var firstDay = 0L
+    private var values = IntArray(0)
+    private var noteIds = IntArray(0)
+    private var notePool = arrayListOf("")
+    private var noteIndex = hashMapOf("" to 0)
+    private var knownCount = 0
+
+    /**
+     * How the entries were derived by the most recent call to [recomputeFrom], so that a later
+     * call may update them locally: [intervals] holds the intervals of a boolean habit, and
+     * [isCopy] indicates that the entries of a numerical habit were copied. Both are reset when
+     * the list is cleared.
+     */
+    private var intervals: AutoIntervals? = null
+    private var isCopy = false
+
+    /**
+     * Totals of the known entries for each month and day of the week. The histogram is built the
+     * first time it is needed, and from then on it is updated whenever a slot changes.
+     */
+    private var histogram: Histogram? = null
 
     /**
      * Returns the entry corresponding to the given timestamp. If no entry with such timestamp
@@ -42,7 +69,9 @@ open class EntryList {
      */
     @Synchronized
     open fun get(timestamp: Timestamp): Entry {
-        return entriesByTimestamp[timestamp] ?: Entry(timestamp, UNKNOWN)
+        val index = slotOf(timestamp)
+        if (index < 0 || noteIds[index] == ABSENT) return Entry(timestamp, UNKNOWN)
+        return Entry(timestamp, values[index], notePool[noteIds[index]])
     }
 
     /**
@@ -52,8 +81,8 @@ open class EntryList {
      */
     @Synchronized
     open fun getByInterval(from: Timestamp, to: Timestamp): List<Entry> {
-        val result = mutableListOf<Entry>()
-        if (from.isNewerThan(to)) return result
+        if (from.isNewerThan(to)) return mutableListOf()
+        val result = ArrayList<Entry>(from.daysUntil(to) + 1)
         var current = to
         while (current >= from) {
             result.add(get(current))
@@ -62,13 +91,86 @@ open class EntryList {
         return result
     }
 
+    /**
+     * Returns the values of the entries in the given interval, in the same order as
+     * [getByInterval], without allocating any entries. Days without an entry receive value
+     * UNKNOWN.
+     */
+    fun getValuesByInterval(from: Timestamp, to: Timestamp): IntArray {
+        if (from.isNewerThan(to)) return IntArray(0)
+        val result = IntArray(from.daysUntil(to) + 1)
+        getValuesByInterval(from, to, result)
+        return result
+    }
+
+    /**
+     * Same as [getValuesByInterval], but writes the values into the provided array, which must
+     * have exactly one element for each day in the interval.
+     */
+    @Synchronized
+    open fun getValuesByInterval(from: Timestamp, to: Timestamp, result: IntArray) {
+        checkIntervalSize(from, to, result.size)
+        val toDay = to.unixTime / DAY_LENGTH
+        for (i in result.indices) {
+            val index = toDay - i - firstDay
+            result[i] = if (index >= 0 && index < values.size) {
+                values[index.toInt()]
+            } else {
+                UNKNOWN
+            }
+        }
+    }
+
+    /**
+     * Writes the notes of the entries in the given interval into the provided array, in the same
+     * order as [getByInterval]. Days without an entry receive empty notes. The array must have
+     * exactly one element for each day in the interval.
+     */
+    @Synchronized
+    open fun getNotesByInterval(from: Timestamp, to: Timestamp, result: Array<String>) {
+        checkIntervalSize(from, to, result.size)
+        val toDay = to.unixTime / DAY_LENGTH
+        for (i in result.indices) {
+            val index = toDay - i - firstDay
+            val noteId = if (index >= 0 && index < values.size) noteIds[index.toInt()] else ABSENT
+            result[i] = if (noteId == ABSENT) "" else notePool[noteId]
+        }
+    }
+
+    private fun checkIntervalSize(from: Timestamp, to: Timestamp, size: Int) {
+        val expected = if (from.isNewerThan(to)) 0 else from.daysUntil(to) + 1
+        if (size != expected) {
+            throw IllegalArgumentException("array has $size elements, expected $expected")
+        }
+    }
+
     /**
      * Adds the given entry to the list. If another entry with the same timestamp already exists,
      * replaces it.
      */
     @Synchronized
     open fun add(entry: Entry) {
-        entriesByTimestamp[entry.timestamp] = entry
+        put(entry)
+    }
+
+    /**
+     * Adds all the given entries to the list. If the same timestamp appears more than once, the
+     * last entry prevails.
+     */
+    @Synchronized
+    open fun addAll(entries: Collection<Entry>) {
+        for (entry in entries) put(entry)
+    }
+
+    private fun put(entry: Entry) {
+        val day = entry.timestamp.unixTime / DAY_LENGTH
+        ensureCapacity(day)
+        val index = (day - firstDay).toInt()
+        if (noteIds[index] == ABSENT) knownCount++
+        updateHistogram(index, -1)
+        values[index] = entry.value
+        noteIds[index] = internNotes(entry.notes)
+        updateHistogram(index, 1)
     }
 
     /**
@@ -77,7 +179,38 @@ open class EntryList {
      */
     @Synchronized
     open fun getKnown(): List<Entry> {
-        return entriesByTimestamp.values.sortedBy { it.timestamp }.reversed()
+        val result = ArrayList<Entry>(knownCount)
+        for (index in values.indices.reversed()) {
+            val noteId = noteIds[index]
+            if (noteId == ABSENT) continue
+            val timestamp = Timestamp((firstDay + index) * DAY_LENGTH)
+            result.add(Entry(timestamp, values[index], notePool[noteId]))
+        }
+        return result
+    }
+
+    /**
+     * Returns the timestamp of the oldest known entry, or null if there are no known entries.
+     * Unlike [getKnown], does not allocate any entries.
+     */
+    @Synchronized
+    open fun getOldestKnown(): Timestamp? {
+        for (index in values.indices) {
+            if (noteIds[index] != ABSENT) return Timestamp((firstDay + index) * DAY_LENGTH)
+        }
+        return null
+    }
+
+    /**
+     * Returns the timestamp of the newest known entry, or null if there are no known entries.
+     * Unlike [getKnown], does not allocate any entries.
+     */
+    @Synchronized
+    open fun getNewestKnown(): Timestamp? {
+        for (index in values.indices.reversed()) {
+            if (noteIds[index] != ABSENT) return Timestamp((firstDay + index) * DAY_LENGTH)
+        }
+        return null
     }
 
     /**
@@ -85,23 +218,293 @@ open class EntryList {
      *
      * For boolean habits, this function creates additional entries (with value YES_AUTO) according
      * to the frequency of the habit. For numerical habits, this function simply copies all entries.
+     *
+     * For boolean habits, the result is the same as combining [buildIntervals],
+     * [snapIntervalsTogether] and [buildEntriesFromInterval], but the computation is done over
+     * primitive arrays of days, and the result is written directly into the storage of this list,
+     * without allocating any objects for each day.
+     *
+     * If [changedDay] is provided, the caller guarantees that, since the previous call, only the
+     * original entry at that day has changed. In that case, if the frequency and the habit type
+     * are also unchanged, only the intervals that contain the changed day, and the older intervals
+     * that slide as a consequence, are rebuilt, and only the days they cover are rewritten.
+     * Otherwise, all entries are recomputed.
+     *
+     * Returns the range of days that were rewritten, if the entries were updated locally, or
+     * null if all entries were recomputed.
      */
     @Synchronized
     open fun recomputeFrom(
         originalEntries: EntryList,
         frequency: Frequency,
-        isNumerical: Boolean
-    ) {
+        isNumerical: Boolean,
+        changedDay: Timestamp? = null
+    ): ClosedRange<Timestamp>? {
+        if (changedDay != null) {
+            val day = changedDay.unixTime / DAY_LENGTH
+            if (isNumerical && isCopy) {
+                copyDayFrom(originalEntries, changedDay)
+                return changedDay..changedDay
+            }
+            val intervals = intervals
+            if (!isNumerical && intervals != null && intervals.frequency == frequency) {
+                return recomputeBooleanAround(originalEntries, intervals, day)
+            }
+        }
         clear()
         val original = originalEntries.getKnown()
         if (isNumerical) {
             original.forEach { add(it) }
+            isCopy = true
         } else {
-            val intervals = buildIntervals(frequency, original)
-            snapIntervalsTogether(intervals)
-            val computed = buildEntriesFromInterval(original, intervals)
-            computed.filter { it.value != UNKNOWN || it.notes.isNotEmpty() }.forEach { add(it) }
+            recomputeBooleanFrom(original, frequency)
+        }
+        return null
+    }
+
+    /**
+     * Same as [recomputeFrom], but only computes the entries from [since] onwards, reading only
+     * the original entries that may affect them. Older entries are left unknown.
+     *
+     * For boolean habits, this is possible because snapping only moves intervals into the past:
+     * the intervals that cover a day begin less than one interval length before it, and their
+     * position only depends on newer intervals. Later calls to [recomputeFrom] with a changed day
+     * keep the entries from [since] onwards correct, but may leave incorrect entries before it.
+     */
+    @Synchronized
+    open fun recomputeRecentFrom(
+        originalEntries: EntryList,
+        frequency: Frequency,
+        isNumerical: Boolean,
+        since: Timestamp
+    ) {
+        clear()
+        if (isNumerical) isCopy = true else intervals = AutoIntervals(frequency, 0)
+        val newest = originalEntries.getNewestKnown() ?: return
+        val sinceDay = since.unixTime / DAY_LENGTH
+        val windowFrom = if (isNumerical) sinceDay else sinceDay - intervals!!.maxSize + 1
+        val original = originalEntries.getByInterval(timestampOf(windowFrom), newest).filter {
+            it.value != UNKNOWN || it.notes.isNotEmpty()
+        }
+        if (isNumerical) {
+            original.forEach { put(it) }
+            return
+        }
+        recomputeBooleanFrom(original, frequency)
+
+        // Days before since may be missing intervals that begin before the window
+        val stale = (sinceDay - firstDay).coerceIn(0, values.size.toLong()).toInt()
+        for (index in 0 until stale) clearSlot(index)
+    }
+
+    private fun recomputeBooleanFrom(original: List<Entry>, frequency: Frequency) {
+        val n = original.size
+        val num = frequency.numerator
+
+        // Days of all original entries, and of the YES_MANUAL ones, newest first
+        val days = LongArray(n)
+        val manualDays = LongArray(n)
+        var manualCount = 0
+        for (i in 0 until n) {
+            val entry = original[i]
+            days[i] = entry.timestamp.unixTime / DAY_LENGTH
+            if (entry.value == YES_MANUAL) manualDays[manualCount++] = days[i]
+        }
+
+        // Build intervals, newest first, as in buildIntervals
+        val intervals = AutoIntervals(frequency, max(0, manualCount - num + 1))
+        for (i in num - 1 until manualCount) {
+            intervals.addIfValid(manualDays[i], manualDays[i - num + 1])
+        }
+        this.intervals = intervals
+        if (n == 0) return
+
+        // Slide intervals into the past, as in snapIntervalsTogether
+        for (i in 0 until intervals.count) intervals.snap(i)
+
+        // Fill the storage directly, as in buildEntriesFromInterval
+        var from = days[n - 1]
+        var to = days[0]
+        for (i in 0 until intervals.count) {
+            from = min(from, intervals.snappedBegin(i))
+            to = max(to, intervals.snappedEnd(i))
+        }
+        val size = (to - from + 1).toInt()
+        firstDay = from
+        values = IntArray(size)
+        values.fill(UNKNOWN)
+        noteIds = IntArray(size)
+        noteIds.fill(ABSENT)
+        for (i in 0 until intervals.count) {
+            for (day in intervals.snappedBegin(i)..intervals.snappedEnd(i)) {
+                val index = (day - from).toInt()
+                values[index] = YES_AUTO
+                noteIds[index] = EMPTY_NOTES
+            }
+        }
+        for (i in 0 until n) {
+            val entry = original[i]
+            val index = (days[i] - from).toInt()
+            val value = if (
+                values[index] == UNKNOWN ||
+                entry.value == SKIP ||
+                entry.value == YES_MANUAL
+            ) {
+                entry.value
+            } else {
+                YES_AUTO
+            }
+            if (value != UNKNOWN || entry.notes.isNotEmpty()) {
+                values[index] = value
+                noteIds[index] = internNotes(entry.notes)
+            }
         }
+        knownCount = noteIds.count { it != ABSENT }
+    }
+
+    /**
+     * Updates the entries of a boolean habit after the original entry at the given day has
+     * changed, given the intervals computed by the previous call to [recomputeFrom].
+     *
+     * Since each interval is defined by [Frequency.numerator] consecutive YES_MANUAL days, only
+     * the intervals that contain the changed day between their begin and their center can be
+     * created or destroyed. These are replaced, and the intervals that follow them are snapped
+     * again, from newest to oldest, until one of them lands where it was before, at which point
+     * all older intervals are known to be unaffected. Returns the range of days rewritten.
+     */
+    private fun recomputeBooleanAround(
+        original: EntryList,
+        intervals: AutoIntervals,
+        day: Long
+    ): ClosedRange<Timestamp> {
+        // YES_MANUAL days that may belong to an interval containing the changed day, newest first
+        val maxSize = intervals.maxSize
+        val windowFrom = day - maxSize + 1
+        val windowTo = day + maxSize - 1
+        val window = IntArray((windowTo - windowFrom + 1).toInt())
+        original.getValuesByInterval(timestampOf(windowFrom), timestampOf(windowTo), window)
+        val manualDays = LongArray(window.size)
+        var manualCount = 0
+        for (i in window.indices) {
+            if (window[i] == YES_MANUAL) manualDays[manualCount++] = windowTo - i
+        }
+
+        // New intervals containing the changed day
+        val num = intervals.frequency.numerator
+        val added = AutoIntervals(intervals.frequency, max(0, manualCount - num + 1))
+        for (i in num - 1 until manualCount) {
+            val begin = manualDays[i]
+            val center = manualDays[i - num + 1]
+            if (begin <= day && day <= center) added.addIfValid(begin, center)
+        }
+
+        // Old intervals containing the changed day
+        val first = intervals.indexOfNewestBeginAtOrBefore(day)
+        var last = first
+        while (last < intervals.count && intervals.centers[last] >= day) last++
+
+        // Replace them, keeping track of the range of days whose coverage may have changed
+        var lo = day
+        var hi = day
+        for (i in first until last) {
+            lo = min(lo, intervals.snappedBegin(i))
+            hi = max(hi, intervals.snappedEnd(i))
+        }
+        intervals.replace(first, last, added)
+        for (i in first until intervals.count) {
+            val isOld = i >= first + added.count
+            val previousShift = intervals.shifts[i]
+            val previousBegin = intervals.snappedBegin(i)
+            val previousEnd = intervals.snappedEnd(i)
+            intervals.snap(i)
+            if (isOld && intervals.shifts[i] == previousShift) break
+            if (isOld) {
+                lo = min(lo, previousBegin)
+                hi = max(hi, previousEnd)
+            }
+            lo = min(lo, intervals.snappedBegin(i))
+            hi = max(hi, intervals.snappedEnd(i))
+        }
+
+        // Days covered by the intervals that overlap the affected range
+        val covered = BooleanArray((hi - lo + 1).toInt())
+        var i = intervals.indexOfNewestBeginAtOrBefore(hi + maxSize - 1)
+        while (i < intervals.count && intervals.begins[i] >= lo - maxSize + 1) {
+            val begin = max(lo, intervals.snappedBegin(i))
+            val end = min(hi, intervals.snappedEnd(i))
+            for (d in begin..end) covered[(d - lo).toInt()] = true
+            i++
+        }
+
+        // Rewrite the affected range, as in recomputeBooleanFrom
+        val originalValues = IntArray(covered.size)
+        val originalNotes = Array(covered.size) { "" }
+        original.getValuesByInterval(timestampOf(lo), timestampOf(hi), originalValues)
+        original.getNotesByInterval(timestampOf(lo), timestampOf(hi), originalNotes)
+        ensureCapacity(lo)
+        ensureCapacity(hi)
+        for (k in covered.indices) {
+            val d = lo + k
+            val value = originalValues[(hi - d).toInt()]
+            val notes = originalNotes[(hi - d).toInt()]
+            val index = (d - firstDay).toInt()
+            if (covered[k]) {
+                val computed = if (value == SKIP || value == YES_MANUAL) value else YES_AUTO
+                setSlot(index, computed, notes)
+            } else if (value != UNKNOWN || notes.isNotEmpty()) {
+                setSlot(index, value, notes)
+            } else {
+                clearSlot(index)
+            }
+        }
+        return timestampOf(lo)..timestampOf(hi)
+    }
+
+    /**
+     * Updates the entries of a numerical habit after the original entry at the given day has
+     * changed.
+     */
+    private fun copyDayFrom(original: EntryList, timestamp: Timestamp) {
+        val entry = original.get(timestamp)
+        val day = timestamp.unixTime / DAY_LENGTH
+        ensureCapacity(day)
+        val index = (day - firstDay).toInt()
+        if (original.isKnown(timestamp)) {
+            setSlot(index, entry.value, entry.notes)
+        } else {
+            clearSlot(index)
+        }
+    }
+
+    @Synchronized
+    private fun isKnown(timestamp: Timestamp): Boolean {
+        val index = slotOf(timestamp)
+        return index >= 0 && noteIds[index] != ABSENT
+    }
+
+    private fun setSlot(index: Int, value: Int, notes: String) {
+        if (noteIds[index] == ABSENT) knownCount++
+        updateHistogram(index, -1)
+        values[index] = value
+        noteIds[index] = internNotes(notes)
+        updateHistogram(index, 1)
+    }
+
+    private fun clearSlot(index: Int) {
+        if (noteIds[index] != ABSENT) knownCount--
+        updateHistogram(index, -1)
+        values[index] = UNKNOWN
+        noteIds[index] = ABSENT
+    }
+
+    /**
+     * Adds the entry at the given slot to the histogram, if it is known and the histogram has
+     * been built. If [sign] is negative, removes the entry instead.
+     */
+    private fun updateHistogram(index: Int, sign: Int) {
+        val histogram = histogram ?: return
+        if (noteIds[index] == ABSENT) return
+        histogram.add(firstDay + index, values[index], sign)
     }
 
     /**
@@ -109,7 +512,77 @@ open class EntryList {
      */
     @Synchronized
     open fun clear() {
-        entriesByTimestamp.clear()
+        firstDay = 0L
+        values = IntArray(0)
+        noteIds = IntArray(0)
+        notePool = arrayListOf("")
+        noteIndex = hashMapOf("" to 0)
+        knownCount = 0
+        intervals = null
+        isCopy = false
+        histogram = null
+    }
+
+    /**
+     * Returns the slot corresponding to the given timestamp, or -1 if the timestamp falls
+     * outside of the allocated range.
+     */
+    private fun slotOf(timestamp: Timestamp): Int {
+        val index = timestamp.unixTime / DAY_LENGTH - firstDay
+        return if (index >= 0 && index < values.size) index.toInt() else -1
+    }
+
+    /**
+     * Grows the arrays, if necessary, so that they contain a slot for the given day. Some extra
+     * room is allocated in the direction of growth, so that adding entries one day at a time
+     * takes amortized constant time.
+     */
+    private fun ensureCapacity(day: Long) {
+        if (values.isEmpty()) {
+            firstDay = day
+            values = IntArray(MIN_CAPACITY) { UNKNOWN }
+            noteIds = IntArray(MIN_CAPACITY) { ABSENT }
+            return
+        }
+        val lastDay = firstDay + values.size - 1
+        if (day in firstDay..lastDay) return
+        val slack = max(MIN_CAPACITY, values.size / 2)
+        val newFirstDay = if (day < firstDay) day - slack else firstDay
+        val newLastDay = if (day > lastDay) day + slack else lastDay
+        val newSize = (newLastDay - newFirstDay + 1).toInt()
+        val shift = (firstDay - newFirstDay).toInt()
+        val newValues = IntArray(newSize) { UNKNOWN }
+        val newNoteIds = IntArray(newSize) { ABSENT }
+        values.copyInto(newValues, shift)
+        noteIds.copyInto(newNoteIds, shift)
+        firstDay = newFirstDay
+        values = newValues
+        noteIds = newNoteIds
+    }
+
+    private fun internNotes(notes: String): Int {
+        return noteIndex.getOrPut(notes) {
+            notePool.add(notes)
+            notePool.size - 1
+        }
+    }
+
+    /**
+     * Returns the total number of successful entries for each month, grouped by day of week.
+     * For numerical habits, returns the sum of the values of the entries instead.
+     *
+     * The view is backed by a histogram that is maintained as entries are added, so, after the
+     * first call, this method takes constant time.
+     */
+    @Synchronized
+    open fun getWeekdayFrequency(isNumerical: Boolean): WeekdayFrequency {
+        val histogram = histogram ?: Histogram().also { histogram ->
+            for (index in values.indices) {
+                if (noteIds[index] != ABSENT) histogram.add(firstDay + index, values[index], 1)
+            }
+            this.histogram = histogram
+        }
+        return histogram.view(isNumerical)
     }
 
     /**
@@ -124,31 +597,150 @@ open class EntryList {
      *
      * @return total number of checkmarks by month versus day of week
      */
-    @Synchronized
     fun computeWeekdayFrequency(isNumerical: Boolean): HashMap<Timestamp, Array<Int>> {
-        val entries = getKnown()
-        val map = hashMapOf<Timestamp, Array<Int>>()
-        for ((originalTimestamp, value) in entries) {
-            val weekday = originalTimestamp.weekday
-            val truncatedTimestamp = Timestamp(
-                originalTimestamp.toCalendar().apply {
-                    set(Calendar.DAY_OF_MONTH, 1)
-                }.timeInMillis
-            )
-
-            var list = map[truncatedTimestamp]
-            if (list == null) {
-                list = arrayOf(0, 0, 0, 0, 0, 0, 0)
-                map[truncatedTimestamp] = list
+        return getWeekdayFrequency(isNumerical).toHashMap()
+    }
+
+    /**
+     * Totals of the known entries, with one row of seven cells (one for each day of the week,
+     * numbered as in [Timestamp.weekday]) for each month, starting at [firstMonth]. For each
+     * cell, [manualCounts] holds the number of YES_MANUAL entries and [valueSums] holds the sum of
+     * the values of all entries. For each row, [knownCounts] holds the number of known entries.
+     *
+     * The arrays are shared with the views returned by [view], so they are copied before being
+     * modified again.
+     */
+    private class Histogram {
+        var firstMonth = 0
+        var manualCounts = IntArray(0)
+        var valueSums = IntArray(0)
+        var knownCounts = IntArray(0)
+        var isShared = false
+
+        fun add(day: Long, value: Int, sign: Int) {
+            val month = WeekdayFrequency.monthOf(day)
+            ensureCapacity(month)
+            val row = month - firstMonth
+            val cell = row * 7 + EpochDays.dayOfWeek(day) % 7
+            if (value == YES_MANUAL) manualCounts[cell] += sign
+            valueSums[cell] += sign * value
+            knownCounts[row] += sign
+        }
+
+        fun view(isNumerical: Boolean): WeekdayFrequency {
+            isShared = true
+            val values = if (isNumerical) valueSums else manualCounts
+            return WeekdayFrequency(firstMonth, values, knownCounts)
+        }
+
+        /**
+         * Makes sure that the arrays are not shared with any view, and that they contain a row
+         * for the given month.
+         */
+        private fun ensureCapacity(month: Int) {
+            if (knownCounts.isEmpty()) firstMonth = month
+            val lastMonth = firstMonth + knownCounts.size - 1
+            val isInRange = month in firstMonth..lastMonth
+            if (isInRange && !isShared) return
+            val newFirstMonth = if (month < firstMonth) month - MONTHS_SLACK else firstMonth
+            val newLastMonth = if (month > lastMonth) month + MONTHS_SLACK else lastMonth
+            val newRows = newLastMonth - newFirstMonth + 1
+            val shift = firstMonth - newFirstMonth
+            manualCounts = manualCounts.copyInto(IntArray(newRows * 7), shift * 7)
+            valueSums = valueSums.copyInto(IntArray(newRows * 7), shift * 7)
+            knownCounts = knownCounts.copyInto(IntArray(newRows), shift)
+            firstMonth = newFirstMonth
+            isShared = false
+        }
+    }
+
+    /**
+     * Intervals of a boolean habit, newest first, stored in primitive arrays of days. Each
+     * interval is described by its [begins], [centers] and [ends] before snapping, and by how
+     * many days snapping moved it into the past ([shifts]).
+     */
+    private class AutoIntervals(val frequency: Frequency, capacity: Int) {
+        var begins = LongArray(capacity)
+        var centers = LongArray(capacity)
+        var ends = LongArray(capacity)
+        var shifts = LongArray(capacity)
+        var count = 0
+
+        private val isMonthly = frequency.denominator == 30 || frequency.denominator == 31
+
+        /**
+         * Upper bound on the number of days in each interval.
+         */
+        val maxSize = if (isMonthly) 31 else frequency.denominator
+
+        fun snappedBegin(i: Int) = begins[i] - shifts[i]
+
+        fun snappedEnd(i: Int) = ends[i] - shifts[i]
+
+        /**
+         * Appends the interval beginning and centered at the given days, as in [buildIntervals],
+         * unless the center falls outside of it.
+         */
+        fun addIfValid(begin: Long, center: Long) {
+            val size = if (isMonthly) monthlyIntervalSize(begin) else frequency.denominator
+            if (center - begin >= size) return
+            begins[count] = begin
+            centers[count] = center
+            ends[count] = begin + size - 1
+            shifts[count] = 0
+            count++
+        }
+
+        /**
+         * Slides the i-th interval into the past, as in [snapIntervalsTogether], assuming that
+         * the newer intervals have already been snapped.
+         */
+        fun snap(i: Int) {
+            shifts[i] = 0
+            if (i == 0) return
+            val gapNextToCurrent = ends[i] - snappedBegin(i - 1)
+            if (gapNextToCurrent >= 0) {
+                shifts[i] = min(ends[i] - centers[i], gapNextToCurrent + 1)
             }
+        }
 
-            if (isNumerical) {
-                list[weekday] += value
-            } else if (value == YES_MANUAL) {
-                list[weekday] += 1
+        /**
+         * Returns the index of the newest interval that begins at or before the given day, or
+         * [count] if there is none. Intervals are sorted by [begins], from newest to oldest.
+         */
+        fun indexOfNewestBeginAtOrBefore(day: Long): Int {
+            var low = 0
+            var high = count
+            while (low < high) {
+                val mid = (low + high) ushr 1
+                if (begins[mid] <= day) high = mid else low = mid + 1
             }
+            return low
+        }
+
+        /**
+         * Replaces the intervals with indices in [from, until) by all the intervals in [other].
+         */
+        fun replace(from: Int, until: Int, other: AutoIntervals) {
+            val newCount = count - (until - from) + other.count
+            if (newCount > begins.size) {
+                val capacity = newCount + max(MIN_CAPACITY, newCount / 2)
+                begins = begins.copyOf(capacity)
+                centers = centers.copyOf(capacity)
+                ends = ends.copyOf(capacity)
+                shifts = shifts.copyOf(capacity)
+            }
+            val tail = from + other.count
+            begins.copyInto(begins, tail, until, count)
+            centers.copyInto(centers, tail, until, count)
+            ends.copyInto(ends, tail, until, count)
+            shifts.copyInto(shifts, tail, until, count)
+            other.begins.copyInto(begins, from, 0, other.count)
+            other.centers.copyInto(centers, from, 0, other.count)
+            other.ends.copyInto(ends, from, 0, other.count)
+            other.shifts.copyInto(shifts, from, 0, other.count)
+            count = newCount
         }
-        return map
     }
 
     data class Interval(val begin: Timestamp, val center: Timestamp, val end: Timestamp) {
@@ -157,6 +749,27 @@ open class EntryList {
     }
 
     companion object {
+        private const val DAY_LENGTH = Timestamp.DAY_LENGTH
+        private const val ABSENT = -1
+        private const val MIN_CAPACITY = 32
+        private const val EMPTY_NOTES = 0
+        private const val MONTHS_SLACK = 12
+
+        private fun timestampOf(day: Long) = Timestamp(day * DAY_LENGTH)
+
+        /**
+         * Returns the size of a monthly interval starting at the given day, as in
+         * [buildIntervals].
+         */
+        private fun monthlyIntervalSize(beginDay: Long): Int {
+            val beginDate = Timestamp(beginDay * DAY_LENGTH).toLocalDate()
+            return if (beginDate.day == beginDate.monthLength) {
+                beginDate.plus(1).monthLength
+            } else {
+                beginDate.monthLength
+            }
+        }
+
         /**
          * Converts a list of intervals into a list of entries. Entries that fall outside of any
          * interval receive value UNKNOWN. Entries that fall within an interval but do not appear
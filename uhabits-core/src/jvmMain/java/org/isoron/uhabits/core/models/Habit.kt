@@ -36,10 +36,11 @@ data class Habit(
     var type: HabitType = HabitType.YES_NO,
     var unit: String = "",
     var uuid: String? = null,
-    val computedEntries: EntryList,
+    private val computedEntryList: EntryList,
     val originalEntries: EntryList,
-    val scores: ScoreList,
-    val streaks: StreakList
+    private val scoreList: ScoreList,
+    private val streakList: StreakList,
+    private val derivedDataCache: DerivedDataCache? = null
 ) {
     init {
         if (uuid == null) this.uuid = UUID.randomUUID().toString().replace("-", "")
@@ -47,6 +48,43 @@ data class Habit(
 
     var observable = ModelObservable()
 
+    /**
+     * Whether the computed entries, scores and streaks of this habit are out of date. Habits
+     * start out stale, so that their derived data is only computed when first needed, either
+     * when one of the properties below is read or by an explicit call to [recompute].
+     */
+    @Volatile
+    var isStale = true
+        private set
+
+    /**
+     * Set when the scores and streaks of this habit were restored from [derivedDataCache] and,
+     * to avoid loading the entire history, only the computed entries from [Window.since] onwards
+     * were computed. [Window.from] is the oldest computed day when the snapshot was stored.
+     */
+    private class Window(val from: Timestamp, val since: Timestamp)
+
+    private var window: Window? = null
+
+    val computedEntries: EntryList
+        get() {
+            recomputeIfStale()
+            completeComputedEntries()
+            return computedEntryList
+        }
+
+    val scores: ScoreList
+        get() {
+            recomputeIfStale()
+            return scoreList
+        }
+
+    val streaks: StreakList
+        get() {
+            recomputeIfStale()
+            return streakList
+        }
+
     val isNumerical: Boolean
         get() = type == HabitType.NUMERICAL
 
@@ -55,9 +93,38 @@ data class Habit(
 
     fun hasReminder(): Boolean = reminder != null
 
+    /**
+     * Returns the computed entries, making sure that the ones from [since] onwards are up to
+     * date, but without computing the older ones if they are not needed. Entries older than
+     * [since] must be read through [computedEntries] instead.
+     */
+    @Synchronized
+    fun getRecentComputedEntries(since: Timestamp): EntryList {
+        recomputeIfStale()
+        val window = window
+        if (window != null && since.isOlderThan(window.since)) completeComputedEntries()
+        return computedEntryList
+    }
+
+    /**
+     * Computes all entries, if only the recent ones have been computed.
+     */
+    @Synchronized
+    private fun completeComputedEntries() {
+        if (window == null) return
+        computedEntryList.recomputeFrom(originalEntries, frequency, isNumerical)
+        window = null
+    }
+
     fun isCompletedToday(): Boolean {
         val today = DateUtils.getTodayWithOffset()
-        val value = computedEntries.get(today).value
+        return isCompleted(getRecentComputedEntries(today).get(today).value)
+    }
+
+    /**
+     * Returns true if the given computed entry value counts as a completion of this habit.
+     */
+    fun isCompleted(value: Int): Boolean {
         return if (isNumerical) {
             when (targetType) {
                 NumericalHabitType.AT_LEAST -> value / 1000.0 >= targetValue
@@ -70,41 +137,182 @@ data class Habit(
 
     fun isEnteredToday(): Boolean {
         val today = DateUtils.getTodayWithOffset()
-        val value = computedEntries.get(today).value
+        val value = getRecentComputedEntries(today).get(today).value
         return value != Entry.UNKNOWN
     }
 
-    fun recompute() {
-        computedEntries.recomputeFrom(
+    /**
+     * Marks the derived data of this habit as out of date. It will be recomputed the next time
+     * it is read.
+     */
+    fun invalidate() {
+        isStale = true
+        id?.let { derivedDataCache?.invalidate(it) }
+    }
+
+    /**
+     * Recomputes the derived data of this habit, but only if it is out of date.
+     */
+    @Synchronized
+    fun recomputeIfStale() {
+        if (isStale) recompute()
+    }
+
+    /**
+     * Recomputes the computed entries, scores and streaks of this habit.
+     *
+     * If [changedFrom] is provided, the caller guarantees that no original entry older than it
+     * has changed since the previous call, which allows some of the derived data to be
+     * recomputed incrementally. If, in addition, [isSingleDay] is true, the caller guarantees
+     * that the original entry at [changedFrom] is the only one that has changed, which allows
+     * the computed entries to be updated locally.
+     *
+     * Full recomputations restore the scores and streaks from [derivedDataCache] instead, if a
+     * snapshot computed with the same parameters is available, and only compute the days that
+     * have been added to the end of the interval since it was stored.
+     */
+    @Synchronized
+    fun recompute(changedFrom: Timestamp? = null, isSingleDay: Boolean = false) {
+        val today = DateUtils.getTodayWithOffset()
+        val to = today.plus(30)
+        val id = id
+        val cache = if (changedFrom == null || isStale) derivedDataCache else null
+        val key = computeDerivedDataKey()
+        if (cache != null && id != null) {
+            val snapshot = cache.load(id, key)
+            if (snapshot != null && restore(snapshot, today, to)) {
+                isStale = false
+                return
+            }
+        }
+
+        // The generation must be read before the original entries, so that the snapshot is not
+        // stored if they change while it is being computed
+        val generation = if (cache != null && id != null) cache.getGeneration(id) else 0L
+
+        // If only the recent entries have been computed, they may be updated locally only if the
+        // scores of the changed day do not depend on older entries
+        val window = window
+        val minLocalDay = window?.since?.plus(2 * frequency.denominator)
+        val isLocal = isSingleDay && !isStale && changedFrom != null &&
+            (minLocalDay == null || changedFrom.isNewerThan(minLocalDay))
+        var changedRange = computedEntryList.recomputeFrom(
             originalEntries = originalEntries,
             frequency = frequency,
-            isNumerical = isNumerical
+            isNumerical = isNumerical,
+            changedDay = if (isLocal) changedFrom else null
         )
+        if (window != null && changedRange != null && changedRange.start < window.since) {
+            // Entries older than the window may have changed as well
+            computedEntryList.recomputeFrom(originalEntries, frequency, isNumerical)
+            changedRange = null
+        }
+        if (changedRange == null) this.window = null
 
-        val today = DateUtils.getTodayWithOffset()
-        val to = today.plus(30)
-        val entries = computedEntries.getKnown()
-        var from = entries.lastOrNull()?.timestamp ?: today
+        var from = this.window?.from ?: computedEntryList.getOldestKnown() ?: today
         if (from.isNewerThan(to)) from = to
 
-        scores.recompute(
+        scoreList.recompute(
             frequency = frequency,
             isNumerical = isNumerical,
             numericalHabitType = targetType,
             targetValue = targetValue,
-            computedEntries = computedEntries,
+            computedEntries = computedEntryList,
             from = from,
-            to = to
+            to = to,
+            changedFrom = if (isStale) null else changedFrom
         )
 
-        streaks.recompute(
-            computedEntries,
+        streakList.recompute(
+            computedEntryList,
             from,
             to,
             isNumerical,
             targetValue,
-            targetType
+            targetType,
+            changed = changedRange
         )
+
+        if (cache != null && id != null) {
+            cache.save(
+                id,
+                key,
+                DerivedDataCache.Snapshot(scoreList.getSnapshot(), streakList.getAll()),
+                generation
+            )
+        }
+
+        isStale = false
+    }
+
+    /**
+     * Replaces the derived data of this habit by the given snapshot, extending it to [to] if it
+     * ends before. Returns false, without changing anything, if the snapshot ends after [to].
+     *
+     * Only the computed entries needed by the recent days, and by the days added since the
+     * snapshot was stored, are computed, so that the entire history does not need to be loaded.
+     */
+    private fun restore(
+        snapshot: DerivedDataCache.Snapshot,
+        today: Timestamp,
+        to: Timestamp
+    ): Boolean {
+        val from = snapshot.scores.from
+        val snapshotTo = snapshot.scores.to
+        if (snapshotTo.isNewerThan(to)) return false
+
+        var since = today.minus(RECENT_DAYS)
+        val extendedFrom = snapshotTo.plus(1).minus(2 * frequency.denominator)
+        if (extendedFrom.isOlderThan(since)) since = extendedFrom
+        if (since.isNewerThan(from)) {
+            computedEntryList.recomputeRecentFrom(originalEntries, frequency, isNumerical, since)
+            window = Window(from, since)
+        } else {
+            computedEntryList.recomputeFrom(originalEntries, frequency, isNumerical)
+            window = null
+        }
+        scoreList.restore(snapshot.scores, frequency, isNumerical, targetType, targetValue)
+        streakList.restore(snapshot.streaks, from, snapshotTo)
+        if (to.isNewerThan(snapshotTo)) {
+            val newFrom = snapshotTo.plus(1)
+            scoreList.recompute(
+                frequency = frequency,
+                isNumerical = isNumerical,
+                numericalHabitType = targetType,
+                targetValue = targetValue,
+                computedEntries = computedEntryList,
+                from = from,
+                to = to,
+                changedFrom = newFrom
+            )
+            streakList.recompute(
+                computedEntryList,
+                from,
+                to,
+                isNumerical,
+                targetValue,
+                targetType,
+                changed = newFrom..to
+            )
+        }
+        return true
+    }
+
+    /**
+     * Returns a key that identifies the parameters of this habit from which its scores and
+     * streaks are computed. Changes to the entries are handled by invalidating the cache instead.
+     */
+    private fun computeDerivedDataKey(): Long {
+        var hash = FNV_OFFSET_BASIS
+        fun mix(value: Long) {
+            hash = (hash xor value) * FNV_PRIME
+        }
+        mix(frequency.numerator.toLong())
+        mix(frequency.denominator.toLong())
+        mix(type.value.toLong())
+        mix(targetType.value.toLong())
+        mix(targetValue.toRawBits())
+        return hash
     }
 
     fun copyFrom(other: Habit) {
@@ -163,4 +371,15 @@ data class Habit(
         result = 31 * result + (uuid?.hashCode() ?: 0)
         return result
     }
+
+    companion object {
+        /**
+         * Number of days before today whose computed entries are computed when the derived data
+         * is restored from the cache. Older entries are only computed when needed.
+         */
+        private const val RECENT_DAYS = 90
+
+        private const val FNV_OFFSET_BASIS = -3750763034362895579L
+        private const val FNV_PRIME = 1099511628211L
+    }
 }
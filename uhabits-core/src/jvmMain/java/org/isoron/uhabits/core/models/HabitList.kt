@@ -218,6 +218,36 @@ abstract class HabitList : Iterable<Habit> {
     }
 
     abstract fun resort()
+
+    /**
+     * Re-sorts the list after the given habits have changed in a way that does
+     * not need to be persisted, such as when their entries are modified.
+     *
+     * Unlike [resort], filtered lists only need to re-evaluate the given
+     * habits, instead of reloading all habits from their parent.
+     *
+     * @param habits the habits that have changed.
+     */
+    open fun resort(habits: List<Habit>) {
+        resort()
+    }
+
+    /**
+     * Re-sorts the list after the given habit has changed.
+     *
+     * See [resort] for more details.
+     *
+     * @param habit the habit that has changed.
+     */
+    fun resort(habit: Habit) {
+        resort(listOf(habit))
+    }
+
+    /**
+     * Releases the resources held by this list. Filtered lists stop tracking
+     * changes to their parent list and should no longer be used.
+     */
+    open fun close() {}
     enum class Order {
         BY_NAME_ASC,
         BY_NAME_DESC,
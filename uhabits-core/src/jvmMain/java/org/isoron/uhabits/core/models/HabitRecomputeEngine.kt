@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2016-2025 Álinson Santos Xavier <git@axavier.org>
+ *
+ * This file is part of Loop Habit Tracker.
+ *
+ * Loop Habit Tracker is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Loop Habit Tracker is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.isoron.uhabits.core.models
+
+import org.isoron.uhabits.core.AppScope
+import java.util.concurrent.ForkJoinPool
+import java.util.concurrent.RecursiveAction
+import javax.inject.Inject
+import kotlin.math.max
+
+/**
+ * Recomputes the derived data of many habits in parallel, on a bounded fork-join pool.
+ *
+ * Recomputing a habit only touches data owned by that habit: its entries, scores and streaks.
+ * These are guarded by their own locks, which [Habit.recompute] always acquires after the lock
+ * of the habit itself. Each task holds the lock of a single habit at a time, so tasks never wait
+ * for each other, except when accessing resources shared by all habits, such as the database,
+ * which are synchronized independently. Concurrent recomputations of the same habit, for
+ * example by the engine and by the UI thread, are serialized by the lock of the habit.
+ *
+ * The engine must not be called while the calling thread holds a database transaction. The
+ * tasks would then wait for the database, which the calling thread only releases after they
+ * finish.
+ */
+@AppScope
+class HabitRecomputeEngine(private val parallelism: Int) {
+
+    @Inject
+    constructor() : this(Runtime.getRuntime().availableProcessors())
+
+    private val pool by lazy { ForkJoinPool(max(1, parallelism)) }
+
+    /**
+     * Recomputes the derived data of the given habits, blocking until all of them are done.
+     */
+    fun recompute(habits: List<Habit>) {
+        run(habits, onlyIfStale = false)
+    }
+
+    /**
+     * Recomputes the derived data of the given habits that are out of date, blocking until all
+     * of them are done.
+     */
+    fun recomputeIfStale(habits: List<Habit>) {
+        run(habits, onlyIfStale = true)
+    }
+
+    /**
+     * Starts recomputing, in the background, the habits that are out of date among the ones
+     * returned by each of the given functions, and returns immediately. The functions are called,
+     * and their habits recomputed, one after the other, on the pool of this engine, so that the
+     * work never delays tasks queued on other runners.
+     */
+    fun recomputeIfStaleInBackground(vararg habits: () -> List<Habit>) {
+        pool.execute {
+            for (getHabits in habits) run(getHabits(), onlyIfStale = true)
+        }
+    }
+
+    private fun run(habits: List<Habit>, onlyIfStale: Boolean) {
+        if (habits.size <= 1 || parallelism <= 1) {
+            for (h in habits) recompute(h, onlyIfStale)
+        } else {
+            pool.invoke(RecomputeAction(habits, 0, habits.size, onlyIfStale))
+        }
+    }
+
+    private class RecomputeAction(
+        private val habits: List<Habit>,
+        private val from: Int,
+        private val to: Int,
+        private val onlyIfStale: Boolean
+    ) : RecursiveAction() {
+        override fun compute() {
+            if (to - from == 1) {
+                recompute(habits[from], onlyIfStale)
+            } else {
+                val mid = (from + to) ushr 1
+                invokeAll(
+                    RecomputeAction(habits, from, mid, onlyIfStale),
+                    RecomputeAction(habits, mid, to, onlyIfStale)
+                )
+            }
+        }
+    }
+
+    companion object {
+        private fun recompute(habit: Habit, onlyIfStale: Boolean) {
+            if (onlyIfStale) habit.recomputeIfStale() else habit.recompute()
+        }
+    }
+}
@@ -32,10 +32,11 @@ interface ModelFactory {
         val scores = buildScoreList()
         val streaks = buildStreakList()
         return Habit(
-            scores = scores,
-            streaks = streaks,
+            scoreList = scores,
+            streakList = streaks,
             originalEntries = buildOriginalEntries(),
-            computedEntries = buildComputedEntries()
+            computedEntryList = buildComputedEntries(),
+            derivedDataCache = buildDerivedDataCache()
         )
     }
     fun buildComputedEntries(): EntryList
@@ -43,6 +44,15 @@ interface ModelFactory {
     fun buildHabitList(): HabitList
     fun buildScoreList(): ScoreList
     fun buildStreakList(): StreakList
+    fun buildDerivedDataCache(): DerivedDataCache? = null
     fun buildHabitListRepository(): Repository<HabitRecord>
     fun buildRepetitionListRepository(): Repository<EntryRecord>
+
+    /**
+     * Runs the given block inside a single database transaction, if the models are backed by a
+     * database. Otherwise, simply runs the block.
+     */
+    fun runInTransaction(block: () -> Unit) {
+        block()
+    }
 }
@@ -20,7 +20,6 @@ package org.isoron.uhabits.core.models
 
 import org.isoron.uhabits.core.models.Score.Companion.compute
 import java.util.ArrayList
-import java.util.HashMap
 import javax.annotation.concurrent.ThreadSafe
 import kotlin.math.max
 import kotlin.math.min
@@ -28,7 +27,17 @@ import kotlin.math.min
 @ThreadSafe
 class ScoreList {
 
-    private val map = HashMap<Timestamp, Score>()
+    /**
+     * Scores are stored densely, one per day, starting at [firstDay] (the number of days since
+     * the epoch corresponding to the first computed score).
+     *
+     * The array is shared with the slices returned by [getSliceByInterval], so it is copied
+     * before being modified again.
+     */
+    private var firstDay = 0L
+    private var scoreValues = DoubleArray(0)
+    private var isShared = false
+    private var lastParams: Parameters? = null
 
     /**
      * Returns the score for a given day. If the timestamp given happens before the first
@@ -36,7 +45,17 @@ class ScoreList {
      */
     @Synchronized
     operator fun get(timestamp: Timestamp): Score {
-        return map[timestamp] ?: Score(timestamp, 0.0)
+        return Score(timestamp, getValue(timestamp))
+    }
+
+    /**
+     * Returns the value of the score for a given day, without allocating a [Score]. Follows the
+     * same rules as [get].
+     */
+    @Synchronized
+    fun getValue(timestamp: Timestamp): Double {
+        val index = timestamp.unixTime / Timestamp.DAY_LENGTH - firstDay
+        return if (index >= 0 && index < scoreValues.size) scoreValues[index.toInt()] else 0.0
     }
 
     /**
@@ -51,18 +70,38 @@ class ScoreList {
         fromTimestamp: Timestamp,
         toTimestamp: Timestamp
     ): List<Score> {
-        val result: MutableList<Score> = ArrayList()
-        if (fromTimestamp.isNewerThan(toTimestamp)) return result
-        var current = toTimestamp
-        while (!current.isOlderThan(fromTimestamp)) {
-            result.add(get(current))
-            current = current.minus(1)
-        }
+        if (fromTimestamp.isNewerThan(toTimestamp)) return ArrayList()
+        val slice = getSliceByInterval(fromTimestamp, toTimestamp)
+        val result = ArrayList<Score>(slice.size)
+        for (i in 0 until slice.size) result.add(Score(slice.getTimestamp(i), slice[i]))
         return result
     }
 
+    /**
+     * Returns a read-only view of the scores that fall within the given interval, following the
+     * same ordering as [getByInterval]. The view shares its array with this list, so no scores
+     * are copied or allocated. Later recomputations copy the array before modifying it, so the
+     * view keeps the scores as they were when it was created.
+     */
+    @Synchronized
+    fun getSliceByInterval(
+        fromTimestamp: Timestamp,
+        toTimestamp: Timestamp
+    ): ScoreSlice {
+        val size = max(0, fromTimestamp.daysUntil(toTimestamp) + 1)
+        val newest = toTimestamp.unixTime / Timestamp.DAY_LENGTH - firstDay
+        isShared = true
+        return ScoreSlice(scoreValues, newest, toTimestamp, size)
+    }
+
     /**
      * Recomputes all scores between the provided [from] and [to] timestamps.
+     *
+     * If [changedFrom] is provided, the caller guarantees that no computed entry older than
+     * [changedFrom] has changed since the previous call. In that case, if all other parameters
+     * except [to] are also unchanged, only the scores from [changedFrom] onwards, or from the
+     * end of the previous interval if it is older, are recomputed, resuming from the score of
+     * the previous day. Otherwise, all scores are recomputed.
      */
     @Synchronized
     fun recompute(
@@ -72,14 +111,36 @@ class ScoreList {
         targetValue: Double,
         computedEntries: EntryList,
         from: Timestamp,
-        to: Timestamp
+        to: Timestamp,
+        changedFrom: Timestamp? = null
     ) {
-        map.clear()
+        val params = Parameters(
+            frequency.numerator,
+            frequency.denominator,
+            isNumerical,
+            numericalHabitType,
+            targetValue,
+            from
+        )
+        var start = 0
+        if (changedFrom != null && params == lastParams && changedFrom.isNewerThan(from)) {
+            start = min(from.daysUntil(changedFrom), scoreValues.size)
+        }
+        val length = max(0, from.daysUntil(to) + 1)
+        if (start == 0) {
+            firstDay = from.unixTime / Timestamp.DAY_LENGTH
+            scoreValues = DoubleArray(length)
+        } else if (length != scoreValues.size || isShared) {
+            scoreValues = scoreValues.copyOf(length)
+        }
+        isShared = false
+        lastParams = params
+        if (start >= length) return
+
         var rollingSum = 0.0
         var numerator = frequency.numerator
         var denominator = frequency.denominator
         val freq = frequency.toDouble()
-        val values = computedEntries.getByInterval(from, to).map { it.value }.toIntArray()
         val isAtMost = numericalHabitType == NumericalHabitType.AT_MOST
 
         // For non-daily boolean habits, we double the numerator and the denominator to smooth
@@ -90,12 +151,32 @@ class ScoreList {
             denominator *= 2
         }
 
+        // Only the entries that can still affect the rolling sum need to be fetched. The array
+        // is ordered from newest to oldest, so that the value for day (from + i) is always
+        // found at offset (length - i - 1), regardless of where the window begins.
+        val windowStart = max(0, start - denominator)
+        val values = computedEntries.getValuesByInterval(from.plus(windowStart), to)
+
         var previousValue = if (isNumerical && isAtMost) 1.0 else 0.0
-        for (i in values.indices) {
-            val offset = values.size - i - 1
+        if (start > 0) {
+            previousValue = scoreValues[start - 1]
+
+            // Rolling sum of the previous day, from the entries that are still in the window
+            for (i in windowStart until start) {
+                val value = values[length - i - 1]
+                if (isNumerical) {
+                    rollingSum += max(0, value)
+                } else if (value == Entry.YES_MANUAL) {
+                    rollingSum += 1.0
+                }
+            }
+        }
+
+        for (i in start until length) {
+            val offset = length - i - 1
             if (isNumerical) {
                 rollingSum += max(0, values[offset])
-                if (offset + denominator < values.size) {
+                if (i >= denominator) {
                     rollingSum -= max(0, values[offset + denominator])
                 }
 
@@ -124,7 +205,7 @@ class ScoreList {
                 if (values[offset] == Entry.YES_MANUAL) {
                     rollingSum += 1.0
                 }
-                if (offset + denominator < values.size) {
+                if (i >= denominator) {
                     if (values[offset + denominator] == Entry.YES_MANUAL) {
                         rollingSum -= 1.0
                     }
@@ -134,8 +215,61 @@ class ScoreList {
                     previousValue = compute(freq, previousValue, percentageCompleted)
                 }
             }
-            val timestamp = from.plus(i)
-            map[timestamp] = Score(timestamp, previousValue)
+            scoreValues[i] = previousValue
         }
     }
+
+    /**
+     * Returns a copy of the computed scores, which can later be passed to [restore].
+     */
+    @Synchronized
+    fun getSnapshot(): Snapshot {
+        return Snapshot(Timestamp(firstDay * Timestamp.DAY_LENGTH), scoreValues.copyOf())
+    }
+
+    /**
+     * Replaces all scores by the ones in the given snapshot, as if [recompute] had been called
+     * with the provided parameters, over the interval covered by the snapshot.
+     */
+    @Synchronized
+    fun restore(
+        snapshot: Snapshot,
+        frequency: Frequency,
+        isNumerical: Boolean,
+        numericalHabitType: NumericalHabitType,
+        targetValue: Double
+    ) {
+        firstDay = snapshot.from.unixTime / Timestamp.DAY_LENGTH
+        scoreValues = snapshot.values.copyOf()
+        isShared = false
+        lastParams = Parameters(
+            frequency.numerator,
+            frequency.denominator,
+            isNumerical,
+            numericalHabitType,
+            targetValue,
+            snapshot.from
+        )
+    }
+
+    /**
+     * Computed scores, one for each day, starting at [from].
+     */
+    class Snapshot(val from: Timestamp, val values: DoubleArray) {
+        val to: Timestamp
+            get() = from.plus(values.size - 1)
+    }
+
+    /**
+     * Parameters used in the most recent computation. Incremental recomputation is only
+     * possible when none of them has changed.
+     */
+    private data class Parameters(
+        val numerator: Int,
+        val denominator: Int,
+        val isNumerical: Boolean,
+        val numericalHabitType: NumericalHabitType,
+        val targetValue: Double,
+        val from: Timestamp
+    )
 }
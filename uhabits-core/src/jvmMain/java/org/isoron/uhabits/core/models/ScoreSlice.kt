@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2016-2025 Álinson Santos Xavier <git@axavier.org>
+ *
+ * This file is part of Loop Habit Tracker.
+ *
+ * Loop Habit Tracker is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Loop Habit Tracker is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.isoron.uhabits.core.models
+
+/**
+ * Read-only view of the scores of a habit over an interval, obtained through
+ * [ScoreList.getSliceByInterval].
+ *
+ * The view reads directly from the array that backs the [ScoreList], so creating and iterating
+ * it allocates nothing per day. The element at index zero corresponds to the newest day in the
+ * interval, and the last element corresponds to the oldest day. Days outside of the computed
+ * range have score zero.
+ *
+ * The list copies the array before recomputing any score, so the view is a stable snapshot of
+ * the scores at the time it was created, and does not reflect later recomputations.
+ */
+class ScoreSlice internal constructor(
+    private val values: DoubleArray,
+    private val newestIndex: Long,
+    val to: Timestamp,
+    val size: Int
+) {
+    /**
+     * Returns the value of the score at the given position.
+     */
+    operator fun get(index: Int): Double {
+        if (index < 0 || index >= size) throw IndexOutOfBoundsException("$index")
+        val i = newestIndex - index
+        return if (i >= 0 && i < values.size) values[i.toInt()] else 0.0
+    }
+
+    /**
+     * Returns the day corresponding to the given position.
+     */
+    fun getTimestamp(index: Int): Timestamp = to.minus(index)
+
+    fun isEmpty(): Boolean = size == 0
+}
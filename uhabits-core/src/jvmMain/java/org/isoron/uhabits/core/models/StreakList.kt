@@ -16,23 +16,94 @@
  * You should have received a copy of the GNU General Public License along
  * with this program. If not, see <http://www.gnu.org/licenses/>.
  */
+
 package org.isoron.uhabits.core.models
 
+import java.util.Collections
 import javax.annotation.concurrent.ThreadSafe
 import kotlin.math.min
 
+/**
+ * Streaks of a habit.
+ *
+ * Streaks are stored in primitive arrays of days, sorted from the oldest to the newest, so that
+ * the streak containing a given day can be found by binary search. When the streaks are
+ * recomputed, the days whose status has changed are applied one at a time, by extending,
+ * shrinking, splitting or merging the streaks around them, unless there are too many of them.
+ * The longest streaks are kept in a separate bounded list, updated as streaks change, so that
+ * [getBest] does not need to sort all streaks.
+ */
 @ThreadSafe
 class StreakList {
-    private val list = ArrayList<Streak>()
+    private var starts = LongArray(0)
+    private var ends = LongArray(0)
+    private var count = 0
+
+    /**
+     * The [BEST_CAPACITY] longest streaks (or all of them, if there are fewer), from the longest
+     * to the shortest, as in [Streak.compareLonger]. If null, they must be found again.
+     */
+    private var best: ArrayList<Streak>? = ArrayList()
+
+    /**
+     * Interval of days covered by the most recent call to [recompute] or [restore], or an empty
+     * interval if the streaks have not been computed yet.
+     */
+    private var windowFrom = 0L
+    private var windowTo = -1L
 
+    /**
+     * Returns the longest streaks, up to the given limit, from the newest to the oldest.
+     */
     @Synchronized
     fun getBest(limit: Int): List<Streak> {
-        list.sortWith { s1: Streak, s2: Streak -> s2.compareLonger(s1) }
-        return list.subList(0, min(list.size, limit)).apply {
-            sortWith { s1: Streak, s2: Streak -> s2.compareNewer(s1) }
-        }.toList()
+        val longest = if (limit <= BEST_CAPACITY) {
+            val best = best ?: findBest().also { best = it }
+            best.subList(0, min(best.size, limit))
+        } else {
+            List(count) { streakAt(it) }
+                .sortedWith { s1: Streak, s2: Streak -> s2.compareLonger(s1) }
+                .take(limit)
+        }
+        return longest.sortedWith { s1: Streak, s2: Streak -> s2.compareNewer(s1) }
+    }
+
+    /**
+     * Returns all streaks, from the newest to the oldest.
+     */
+    @Synchronized
+    fun getAll(): List<Streak> {
+        return List(count) { streakAt(count - 1 - it) }
     }
 
+    /**
+     * Replaces all streaks by the ones provided, previously obtained through [getAll] after
+     * computing them over the given interval.
+     */
+    @Synchronized
+    fun restore(streaks: List<Streak>, from: Timestamp, to: Timestamp) {
+        val sorted = streaks.sortedWith { s1: Streak, s2: Streak -> s1.compareNewer(s2) }
+        count = sorted.size
+        starts = LongArray(count) { dayOf(sorted[it].start) }
+        ends = LongArray(count) { dayOf(sorted[it].end) }
+        best = null
+        windowFrom = dayOf(from)
+        windowTo = dayOf(to)
+    }
+
+    /**
+     * Recomputes the streaks from the given computed entries.
+     *
+     * If [changed] is provided, the caller guarantees that, since the previous call, the
+     * computed entries have only changed within that range. In that case, if the interval starts
+     * at the same day as before and has not moved back, only the days in that range, and the
+     * days added to the end of the interval, are applied to the streaks around them, and no
+     * other computed entry is read.
+     *
+     * Otherwise, the status of each day in the interval is compared to the current streaks. If
+     * only a few days have changed, the streaks around them are updated locally. If not, all
+     * streaks are rebuilt.
+     */
     @Synchronized
     fun recompute(
         computedEntries: EntryList,
@@ -40,39 +111,260 @@ class StreakList {
         to: Timestamp,
         isNumerical: Boolean,
         targetValue: Double,
+        targetType: NumericalHabitType,
+        changed: ClosedRange<Timestamp>? = null
+    ) {
+        if (from.isNewerThan(to)) {
+            restore(emptyList(), from, to)
+            return
+        }
+        val fromDay = dayOf(from)
+        val toDay = dayOf(to)
+        val isSameStart = fromDay == windowFrom && toDay >= windowTo
+        if (changed != null && isSameStart) {
+            val lo = maxOf(fromDay, dayOf(changed.start))
+            val hi = minOf(windowTo, dayOf(changed.endInclusive))
+            if (lo <= hi) {
+                applyDays(computedEntries, lo, hi, isNumerical, targetValue, targetType)
+            }
+            if (toDay > windowTo) {
+                val newFrom = windowTo + 1
+                applyDays(computedEntries, newFrom, toDay, isNumerical, targetValue, targetType)
+            }
+            windowTo = toDay
+            return
+        }
+
+        val values = computedEntries.getValuesByInterval(from, to)
+        val success = BooleanArray(values.size) { i ->
+            // Values are sorted from the newest to the oldest
+            isSuccess(values[values.size - 1 - i], isNumerical, targetValue, targetType)
+        }
+        val isInside = count == 0 || (starts[0] >= fromDay && ends[count - 1] <= toDay)
+        val changes = if (isInside) findChanges(fromDay, success) else null
+        if (changes == null) {
+            rebuild(fromDay, success)
+        } else {
+            for (day in changes) setDay(day, success[(day - fromDay).toInt()])
+        }
+        windowFrom = fromDay
+        windowTo = toDay
+    }
+
+    /**
+     * Reads the computed entries between the given days, inclusive, and applies the status of
+     * each one to the streaks.
+     */
+    private fun applyDays(
+        computedEntries: EntryList,
+        lo: Long,
+        hi: Long,
+        isNumerical: Boolean,
+        targetValue: Double,
         targetType: NumericalHabitType
     ) {
-        list.clear()
-        val timestamps = computedEntries
-            .getByInterval(from, to)
-            .filter {
-                val value = it.value
-                if (isNumerical) {
-                    when (targetType) {
-                        NumericalHabitType.AT_LEAST -> value / 1000.0 >= targetValue
-                        NumericalHabitType.AT_MOST -> value != Entry.UNKNOWN && value / 1000.0 <= targetValue
-                    }
-                } else {
-                    value > 0
+        val values = IntArray((hi - lo + 1).toInt())
+        computedEntries.getValuesByInterval(timestampOf(lo), timestampOf(hi), values)
+        for (k in values.indices) {
+            // Values are sorted from the newest to the oldest
+            val value = values[values.size - 1 - k]
+            setDay(lo + k, isSuccess(value, isNumerical, targetValue, targetType))
+        }
+    }
+
+    /**
+     * Returns the days whose status differs from the current streaks, or null if there are more
+     * than [MAX_CHANGES] of them. The first element of [success] corresponds to [fromDay].
+     */
+    private fun findChanges(fromDay: Long, success: BooleanArray): LongArray? {
+        val changes = LongArray(MAX_CHANGES)
+        var changeCount = 0
+        var i = 0
+        for (k in success.indices) {
+            val day = fromDay + k
+            while (i < count && ends[i] < day) i++
+            val wasSuccess = i < count && starts[i] <= day
+            if (wasSuccess == success[k]) continue
+            if (changeCount == MAX_CHANGES) return null
+            changes[changeCount++] = day
+        }
+        return changes.copyOf(changeCount)
+    }
+
+    private fun rebuild(fromDay: Long, success: BooleanArray) {
+        starts = LongArray((success.size + 1) / 2)
+        ends = LongArray(starts.size)
+        count = 0
+        var k = 0
+        while (k < success.size) {
+            if (!success[k]) {
+                k++
+                continue
+            }
+            val begin = k
+            while (k < success.size && success[k]) k++
+            starts[count] = fromDay + begin
+            ends[count] = fromDay + k - 1
+            count++
+        }
+        best = null
+    }
+
+    /**
+     * Updates the streaks after the status of the given day has changed.
+     */
+    private fun setDay(day: Long, isSuccess: Boolean) {
+        val i = indexOfFirstEndAtOrAfter(day)
+        val isInStreak = i < count && starts[i] <= day
+        if (isSuccess) {
+            if (isInStreak) return
+            val joinsPrevious = i > 0 && ends[i - 1] == day - 1
+            val joinsNext = i < count && starts[i] == day + 1
+            when {
+                joinsPrevious && joinsNext -> {
+                    val end = ends[i]
+                    removeAt(i)
+                    replaceAt(i - 1, starts[i - 1], end)
                 }
+                joinsPrevious -> replaceAt(i - 1, starts[i - 1], day)
+                joinsNext -> replaceAt(i, day, ends[i])
+                else -> insertAt(i, day, day)
             }
-            .map { it.timestamp }
-            .toTypedArray()
-
-        if (timestamps.isEmpty()) return
-
-        var begin = timestamps[0]
-        var end = timestamps[0]
-        for (i in 1 until timestamps.size) {
-            val current = timestamps[i]
-            if (current == begin.minus(1)) {
-                begin = current
-            } else {
-                list.add(Streak(begin, end))
-                begin = current
-                end = current
+        } else {
+            if (!isInStreak) return
+            val start = starts[i]
+            val end = ends[i]
+            when {
+                start == end -> removeAt(i)
+                day == start -> replaceAt(i, day + 1, end)
+                day == end -> replaceAt(i, start, day - 1)
+                else -> {
+                    replaceAt(i, start, day - 1)
+                    insertAt(i + 1, day + 1, end)
+                }
             }
         }
-        list.add(Streak(begin, end))
+    }
+
+    private fun indexOfFirstEndAtOrAfter(day: Long): Int {
+        var low = 0
+        var high = count
+        while (low < high) {
+            val mid = (low + high) ushr 1
+            if (ends[mid] < day) low = mid + 1 else high = mid
+        }
+        return low
+    }
+
+    private fun insertAt(i: Int, start: Long, end: Long) {
+        if (count == starts.size) {
+            val capacity = maxOf(MIN_CAPACITY, count * 2)
+            starts = starts.copyOf(capacity)
+            ends = ends.copyOf(capacity)
+        }
+        starts.copyInto(starts, i + 1, i, count)
+        ends.copyInto(ends, i + 1, i, count)
+        starts[i] = start
+        ends[i] = end
+        count++
+        addToBest(streakAt(i))
+    }
+
+    private fun removeAt(i: Int) {
+        val removed = streakAt(i)
+        starts.copyInto(starts, i, i + 1, count)
+        ends.copyInto(ends, i, i + 1, count)
+        count--
+        val best = best ?: return
+        val index = indexInBest(best, removed)
+        if (index < 0) return
+        best.removeAt(index)
+        if (best.size < count) this.best = null
+    }
+
+    private fun replaceAt(i: Int, start: Long, end: Long) {
+        val previous = streakAt(i)
+        starts[i] = start
+        ends[i] = end
+        val current = streakAt(i)
+        val best = best ?: return
+        val index = indexInBest(best, previous)
+        if (index < 0) {
+            addToBest(current)
+            return
+        }
+        best.removeAt(index)
+
+        // The replaced streak leaves an empty slot. The new one may take it only if it is
+        // known to be longer than all streaks not in the list.
+        if (best.size + 1 < count && (best.isEmpty() || current.compareLonger(best.last()) < 0)) {
+            this.best = null
+            return
+        }
+        best.add(-indexInBest(best, current) - 1, current)
+    }
+
+    private fun addToBest(streak: Streak) {
+        val best = best ?: return
+        if (best.size == BEST_CAPACITY && streak.compareLonger(best.last()) < 0) return
+        best.add(-indexInBest(best, streak) - 1, streak)
+        if (best.size > BEST_CAPACITY) best.removeAt(best.size - 1)
+    }
+
+    private fun findBest(): ArrayList<Streak> {
+        val result = ArrayList<Streak>(BEST_CAPACITY + 1)
+        for (i in 0 until count) {
+            val streak = streakAt(i)
+            if (result.size == BEST_CAPACITY && streak.compareLonger(result.last()) < 0) continue
+            result.add(-indexInBest(result, streak) - 1, streak)
+            if (result.size > BEST_CAPACITY) result.removeAt(result.size - 1)
+        }
+        return result
+    }
+
+    private fun streakAt(i: Int) = Streak(timestampOf(starts[i]), timestampOf(ends[i]))
+
+    private fun isSuccess(
+        value: Int,
+        isNumerical: Boolean,
+        targetValue: Double,
+        targetType: NumericalHabitType
+    ): Boolean {
+        return if (isNumerical) {
+            when (targetType) {
+                NumericalHabitType.AT_LEAST -> value / 1000.0 >= targetValue
+                NumericalHabitType.AT_MOST ->
+                    value != Entry.UNKNOWN && value / 1000.0 <= targetValue
+            }
+        } else {
+            value > 0
+        }
+    }
+
+    companion object {
+        private const val DAY_LENGTH = Timestamp.DAY_LENGTH
+        private const val MIN_CAPACITY = 16
+
+        /**
+         * Number of longest streaks kept by the list. Requests for more streaks than this
+         * require sorting all streaks.
+         */
+        private const val BEST_CAPACITY = 32
+
+        /**
+         * Maximum number of changed days that are applied one at a time, before rebuilding all
+         * streaks instead.
+         */
+        private const val MAX_CHANGES = 64
+
+        private val LONGER_FIRST = Comparator { s1: Streak, s2: Streak -> s2.compareLonger(s1) }
+
+        private fun indexInBest(best: List<Streak>, streak: Streak): Int {
+            return Collections.binarySearch(best, streak, LONGER_FIRST)
+        }
+
+        private fun dayOf(timestamp: Timestamp) = timestamp.unixTime / DAY_LENGTH
+
+        private fun timestampOf(day: Long) = Timestamp(day * DAY_LENGTH)
     }
 }
@@ -18,13 +18,13 @@
  */
 package org.isoron.uhabits.core.models
 
+import org.isoron.platform.time.EpochDays
 import org.isoron.platform.time.LocalDate
 import org.isoron.uhabits.core.utils.DateFormats.Companion.getCSVDateFormat
 import org.isoron.uhabits.core.utils.DateFormats.Companion.getDialogDateFormat
 import org.isoron.uhabits.core.utils.DateUtils
 import org.isoron.uhabits.core.utils.DateUtils.Companion.getStartOfTodayCalendar
 import org.isoron.uhabits.core.utils.DateUtils.Companion.truncate
-import java.util.Calendar
 import java.util.Date
 import java.util.GregorianCalendar
 import java.util.TimeZone
@@ -36,7 +36,7 @@ data class Timestamp(var unixTime: Long) : Comparable<Timestamp> {
     fun toLocalDate(): LocalDate {
         val millisSince2000 = unixTime - 946684800000L
         val daysSince2000 = (millisSince2000 / 86400000).toInt()
-        return LocalDate(daysSince2000)
+        return LocalDate.of(daysSince2000)
     }
 
     /**
@@ -95,7 +95,7 @@ data class Timestamp(var unixTime: Long) : Comparable<Timestamp> {
      * to 0, Sunday maps to 1, and so on.
      */
     val weekday: Int
-        get() = toCalendar()[Calendar.DAY_OF_WEEK] % 7
+        get() = EpochDays.dayOfWeek(unixTime / DAY_LENGTH) % 7
 
     fun truncate(field: DateUtils.TruncateField?, firstWeekday: Int): Timestamp {
         return Timestamp(
@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2016-2025 Álinson Santos Xavier <git@axavier.org>
+ *
+ * This file is part of Loop Habit Tracker.
+ *
+ * Loop Habit Tracker is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Loop Habit Tracker is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.isoron.uhabits.core.models
+
+import org.isoron.platform.time.EpochDays
+
+/**
+ * Read-only view of the known entries of a habit, totalled for each month and grouped by day of
+ * the week, obtained through [EntryList.getWeekdayFrequency].
+ *
+ * The view shares the histogram that the [EntryList] maintains as entries are added, so it is
+ * obtained in constant time. The list copies the histogram before modifying it again, so the
+ * contents of the view never change. Days of the week are numbered as in [Timestamp.weekday],
+ * from 0 (Saturday) to 6 (Friday).
+ */
+class WeekdayFrequency internal constructor(
+    private val firstMonth: Int,
+    private val values: IntArray,
+    private val knownCounts: IntArray
+) {
+    /**
+     * Largest total in the view, or zero if there are none.
+     */
+    val max: Int by lazy { values.maxOrNull()?.coerceAtLeast(0) ?: 0 }
+
+    /**
+     * Returns the total for the given day of the week, during the month that contains the given
+     * timestamp.
+     */
+    operator fun get(month: Timestamp, weekday: Int): Int {
+        val row = rowOf(month)
+        return if (row < 0) 0 else values[row * 7 + weekday]
+    }
+
+    /**
+     * Returns true if there is at least one known entry during the month that contains the given
+     * timestamp.
+     */
+    operator fun contains(month: Timestamp): Boolean = rowOf(month) >= 0
+
+    /**
+     * Returns the totals in the format of [EntryList.computeWeekdayFrequency].
+     */
+    fun toHashMap(): HashMap<Timestamp, Array<Int>> {
+        val map = hashMapOf<Timestamp, Array<Int>>()
+        for (row in knownCounts.indices) {
+            if (knownCounts[row] == 0) continue
+            map[startOfMonth(firstMonth + row)] = Array(7) { values[row * 7 + it] }
+        }
+        return map
+    }
+
+    private fun rowOf(month: Timestamp): Int {
+        val row = monthOf(month.unixTime / DAY_LENGTH) - firstMonth
+        return if (row >= 0 && row < knownCounts.size && knownCounts[row] > 0) row else -1
+    }
+
+    companion object {
+        private const val DAY_LENGTH = Timestamp.DAY_LENGTH
+
+        /**
+         * Returns the number of months between January of year zero and the month that contains
+         * the given day.
+         */
+        internal fun monthOf(day: Long): Int = EpochDays.year(day) * 12 + EpochDays.month(day) - 1
+
+        private fun startOfMonth(month: Int): Timestamp {
+            val year = Math.floorDiv(month, 12)
+            val day = EpochDays.fromCivil(year, month - year * 12 + 1, 1)
+            return Timestamp(day * DAY_LENGTH)
+        }
+    }
+}
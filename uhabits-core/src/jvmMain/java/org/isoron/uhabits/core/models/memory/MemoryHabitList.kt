@@ -21,24 +21,49 @@ package org.isoron.uhabits.core.models.memory
 import org.isoron.uhabits.core.models.Habit
 import org.isoron.uhabits.core.models.HabitList
 import org.isoron.uhabits.core.models.HabitMatcher
+import org.isoron.uhabits.core.models.Timestamp
 import org.isoron.uhabits.core.utils.DateUtils.Companion.getTodayWithOffset
+import java.lang.ref.WeakReference
 import java.util.ArrayList
 import java.util.Comparator
-import java.util.LinkedList
+import java.util.HashMap
 import java.util.Objects
+import kotlin.math.max
+import kotlin.math.min
 
 /**
  * In-memory implementation of [HabitList].
+ *
+ * Habits are stored in an array, along with hash indexes from id and UUID to habit, and from id
+ * to position, so that lookups take constant time. When a habit is added, removed or moved, only
+ * the positions between its old and new places are reindexed. The indexes are rebuilt when the
+ * list is sorted. If the UUID of a habit is modified, [update] must be called before the habit can
+ * be found by its new UUID.
+ *
+ * Filtered lists are registered on their parent through weak references, and are updated
+ * incrementally when habits are added, removed or updated, re-evaluating only the habits that
+ * changed. A filtered list stops tracking its parent when [close] is called or when it is no
+ * longer referenced.
+ *
+ * Sorting by score or status computes the score and today's entry of each habit only once, instead
+ * of on every comparison. When a single habit changes, it is moved to its new position with a
+ * binary search, instead of sorting the entire list again.
  */
 class MemoryHabitList : HabitList {
-    private val list = LinkedList<Habit>()
+    private val list = ArrayList<Habit>()
+    private val habitById = HashMap<Long, Habit>()
+    private val habitByUUID = HashMap<String, Habit>()
+    private val positionById = HashMap<Long, Int>()
+    private var maxId = -1L
+    private val children = ArrayList<WeakReference<MemoryHabitList>>()
 
     @get:Synchronized
     override var primaryOrder = Order.BY_POSITION
         set(value) {
             field = value
             comparator = getComposedComparatorByOrder(primaryOrder, secondaryOrder)
-            resort()
+            sort()
+            observable.notifyListeners()
         }
 
     @get:Synchronized
@@ -46,7 +71,8 @@ class MemoryHabitList : HabitList {
         set(value) {
             field = value
             comparator = getComposedComparatorByOrder(primaryOrder, secondaryOrder)
-            resort()
+            sort()
+            observable.notifyListeners()
         }
 
     private var comparator: Comparator<Habit>? =
@@ -63,7 +89,7 @@ class MemoryHabitList : HabitList {
         this.comparator = comparator
         primaryOrder = parent.primaryOrder
         secondaryOrder = parent.secondaryOrder
-        parent.observable.addListener { loadFromParent() }
+        parent.addChild(this)
         loadFromParent()
     }
 
@@ -71,27 +97,25 @@ class MemoryHabitList : HabitList {
     @Throws(IllegalArgumentException::class)
     override fun add(habit: Habit) {
         throwIfHasParent()
-        require(!list.contains(habit)) { "habit already added" }
+        require(indexOf(habit) < 0) { "habit already added" }
         val id = habit.id
         if (id != null && getById(id) != null) throw RuntimeException("duplicate id")
-        if (id == null) habit.id = list.size.toLong()
-        list.addLast(habit)
-        resort()
+        if (id == null) habit.id = max(list.size.toLong(), maxId + 1)
+        val position = findSortedPosition(habit, list.size, null)
+        list.add(position, habit)
+        updateIndexes(habit, -1, position)
+        propagate(listOf(habit))
     }
 
     @Synchronized
     override fun getById(id: Long): Habit? {
-        for (h in list) {
-            checkNotNull(h.id)
-            if (h.id == id) return h
-        }
-        return null
+        return habitById[id]
     }
 
     @Synchronized
     override fun getByUUID(uuid: String?): Habit? {
-        for (h in list) if (Objects.requireNonNull(h.uuid) == uuid) return h
-        return null
+        val habit = habitByUUID[uuid] ?: return null
+        return if (habit.uuid == uuid) habit else null
     }
 
     @Synchronized
@@ -108,12 +132,79 @@ class MemoryHabitList : HabitList {
         firstOrder: Order,
         secondOrder: Order?
     ): Comparator<Habit> {
+        val firstComparator = getComparatorByOrder(firstOrder)
+        val secondComparator = secondOrder?.let { getComparatorByOrder(it) }
         return Comparator { h1: Habit, h2: Habit ->
-            val firstResult = getComparatorByOrder(firstOrder).compare(h1, h2)
-            if (firstResult != 0 || secondOrder == null) {
+            val firstResult = firstComparator.compare(h1, h2)
+            if (firstResult != 0 || secondComparator == null) {
                 return@Comparator firstResult
             }
-            getComparatorByOrder(secondOrder).compare(h1, h2)
+            secondComparator.compare(h1, h2)
+        }
+    }
+
+    /**
+     * Sort keys for the habits in a list, followed by an optional extra habit, according to the
+     * current orders. The score and status of each habit are computed at most once, when first
+     * needed, and stored in primitive arrays. Other orders use the regular comparators.
+     */
+    private inner class SortKeys(
+        private val habits: List<Habit>,
+        private val extra: Habit? = null
+    ) {
+        private val today = getTodayWithOffset()
+        private val size = habits.size + 1
+        private val scores = DoubleArray(size)
+        private val statuses = LongArray(size)
+        private val hasScore = BooleanArray(size)
+        private val hasStatus = BooleanArray(size)
+        private val firstComparator = getComparatorByOrder(primaryOrder)
+        private val secondComparator = getComparatorByOrder(secondaryOrder)
+
+        fun compare(i: Int, j: Int): Int {
+            val result = compare(primaryOrder, firstComparator, i, j)
+            if (result != 0) return result
+            return compare(secondaryOrder, secondComparator, i, j)
+        }
+
+        private fun compare(order: Order, comparator: Comparator<Habit>, i: Int, j: Int): Int {
+            return when (order) {
+                Order.BY_SCORE_DESC -> score(i).compareTo(score(j))
+                Order.BY_SCORE_ASC -> score(j).compareTo(score(i))
+                Order.BY_STATUS_DESC -> status(j).compareTo(status(i))
+                Order.BY_STATUS_ASC -> status(i).compareTo(status(j))
+                else -> comparator.compare(habitAt(i), habitAt(j))
+            }
+        }
+
+        private fun habitAt(i: Int) = if (i < habits.size) habits[i] else extra!!
+
+        private fun score(i: Int): Double {
+            if (!hasScore[i]) {
+                scores[i] = habitAt(i).scores[today].value
+                hasScore[i] = true
+            }
+            return scores[i]
+        }
+
+        /**
+         * Returns a key that sorts completed habits after the others, then numerical habits after
+         * boolean ones, then habits by today's value, matching the status comparators.
+         */
+        private fun status(i: Int): Long {
+            if (!hasStatus[i]) {
+                statuses[i] = statusKey(habitAt(i), today)
+                hasStatus[i] = true
+            }
+            return statuses[i]
+        }
+
+        private fun statusKey(h: Habit, today: Timestamp): Long {
+            val value = h.getRecentComputedEntries(today).get(today).value
+            var key = value.toLong() - Int.MIN_VALUE
+            if (h.isNumerical) key += 1L shl 32
+            if (h.isCompleted(value)) key += 1L shl 33
+            return key
         }
     }
 
@@ -145,8 +236,8 @@ class MemoryHabitList : HabitList {
                 return@Comparator if (h1.isNumerical) -1 else 1
             }
             val today = getTodayWithOffset()
-            val v1 = h1.computedEntries.get(today).value
-            val v2 = h2.computedEntries.get(today).value
+            val v1 = h1.getRecentComputedEntries(today).get(today).value
+            val v2 = h2.getRecentComputedEntries(today).get(today).value
             v2.compareTo(v1)
         }
         val statusComparatorAsc =
@@ -167,7 +258,8 @@ class MemoryHabitList : HabitList {
 
     @Synchronized
     override fun indexOf(h: Habit): Int {
-        return list.indexOf(h)
+        val position = h.id?.let { positionById[it] } ?: return -1
+        return if (list[position] == h) position else -1
     }
 
     @Synchronized
@@ -178,8 +270,11 @@ class MemoryHabitList : HabitList {
     @Synchronized
     override fun remove(h: Habit) {
         throwIfHasParent()
-        list.remove(h)
-        observable.notifyListeners()
+        val position = indexOf(h)
+        if (position < 0) return
+        list.removeAt(position)
+        updateIndexes(h, position, -1)
+        propagate(listOf(h))
     }
 
     @Synchronized
@@ -189,10 +284,13 @@ class MemoryHabitList : HabitList {
         require(indexOf(from) >= 0) { "list does not contain (from) habit" }
         val toPos = indexOf(to)
         require(toPos >= 0) { "list does not contain (to) habit" }
-        list.remove(from)
+        val fromPos = indexOf(from)
+        list.removeAt(fromPos)
         list.add(toPos, from)
         var position = 0
         for (h in list) h.position = position++
+        updateIndexes(from, fromPos, toPos)
+        forEachChild { it.resortFromParent() }
         observable.notifyListeners()
     }
 
@@ -203,7 +301,16 @@ class MemoryHabitList : HabitList {
 
     @Synchronized
     override fun update(habits: List<Habit>) {
-        resort()
+        onChanged(habits)
+    }
+
+    @Synchronized
+    override fun resort(habits: List<Habit>) {
+        onChanged(habits)
+    }
+
+    override fun close() {
+        parent?.removeChild(this)
     }
 
     private fun throwIfHasParent() {
@@ -218,12 +325,162 @@ class MemoryHabitList : HabitList {
         checkNotNull(parent)
         list.clear()
         for (h in parent!!) if (filter.matches(h)) list.add(h)
-        resort()
+        onChanged(null)
     }
 
+    /**
+     * Re-evaluates the given habits, which have been added to, removed from or updated in the
+     * parent list. Each habit is removed from this list and, if it still belongs to the parent and
+     * matches the filter, inserted back at its sorted position.
+     */
     @Synchronized
-    override fun resort() {
-        if (comparator != null) list.sortWith(comparator!!)
+    private fun updateFromParent(habits: List<Habit>) {
+        val parent = checkNotNull(parent)
+        for (h in habits) {
+            val position = indexOf(h)
+            if (position >= 0) list.removeAt(position)
+            var newPosition = -1
+            if (parent.indexOf(h) >= 0 && filter.matches(h)) {
+                newPosition = findSortedPosition(h, list.size, parent)
+                list.add(newPosition, h)
+            }
+            updateIndexes(h, position, newPosition)
+        }
+        forEachChild { it.updateFromParent(habits) }
+        observable.notifyListeners()
+    }
+
+    @Synchronized
+    private fun resortFromParent() {
+        sort()
+        forEachChild { it.resortFromParent() }
+        observable.notifyListeners()
+    }
+
+    /**
+     * Returns the position where the given habit, which is not in the list, should be inserted
+     * to keep the list sorted. Among habits that compare as equal, the habit is placed as close
+     * as possible to the preferred position, as a stable sort would do. If a parent is given,
+     * ties are broken by the position of the habits in the parent, as a full reload would do.
+     */
+    private fun findSortedPosition(h: Habit, preferred: Int, parent: MemoryHabitList?): Int {
+        if (comparator == null) return preferred
+        val keys = SortKeys(list, h)
+        val target = list.size
+        fun compareAt(i: Int): Int {
+            val result = keys.compare(i, target)
+            if (result != 0 || parent == null) return result
+            return parent.indexOf(list[i]).compareTo(parent.indexOf(h))
+        }
+        var low = 0
+        var high = list.size
+        while (low < high) {
+            val mid = (low + high) ushr 1
+            if (compareAt(mid) < 0) low = mid + 1 else high = mid
+        }
+        val first = low
+        high = list.size
+        while (low < high) {
+            val mid = (low + high) ushr 1
+            if (compareAt(mid) <= 0) low = mid + 1 else high = mid
+        }
+        return preferred.coerceIn(first, low)
+    }
+
+    private fun reposition(h: Habit) {
+        val previous = indexOf(h)
+        list.removeAt(previous)
+        val position = findSortedPosition(h, previous, null)
+        list.add(position, h)
+        updateIndexes(h, previous, position)
+    }
+
+    /**
+     * Sorts the list and propagates the change to filtered lists. If the habits that changed are
+     * not known, filtered lists are reloaded from scratch.
+     */
+    private fun onChanged(changed: List<Habit>?) {
+        val habit = changed?.singleOrNull()
+        if (habit != null && indexOf(habit) >= 0) reposition(habit) else sort()
+        propagate(changed)
+    }
+
+    private fun propagate(changed: List<Habit>?) {
+        forEachChild { child ->
+            if (changed == null) child.loadFromParent() else child.updateFromParent(changed)
+        }
         observable.notifyListeners()
     }
+
+    @Synchronized
+    override fun resort() {
+        onChanged(null)
+    }
+
+    private fun sort() {
+        if (comparator != null && list.size > 1) {
+            val keys = SortKeys(list)
+            val sorted = (0 until list.size).sortedWith { i, j -> keys.compare(i, j) }
+                .map { list[it] }
+            list.clear()
+            list.addAll(sorted)
+        }
+        reindex()
+    }
+
+    @Synchronized
+    private fun addChild(child: MemoryHabitList) {
+        children.add(WeakReference(child))
+    }
+
+    @Synchronized
+    private fun removeChild(child: MemoryHabitList) {
+        children.removeAll { it.get() == null || it.get() === child }
+    }
+
+    private fun forEachChild(action: (MemoryHabitList) -> Unit) {
+        if (children.isEmpty()) return
+        children.removeAll { it.get() == null }
+        for (ref in ArrayList(children)) ref.get()?.let(action)
+    }
+
+    /**
+     * Updates the indexes after the given habit has been removed from position [removedAt] and
+     * then inserted at position [insertedAt], where -1 means that the habit was not removed or
+     * not inserted. Only the positions between the two are reindexed.
+     */
+    private fun updateIndexes(h: Habit, removedAt: Int, insertedAt: Int) {
+        if (removedAt < 0 && insertedAt < 0) return
+        val id = checkNotNull(h.id)
+        if (insertedAt < 0) {
+            habitById.remove(id)
+            positionById.remove(id)
+            h.uuid?.let { if (habitByUUID[it] === h) habitByUUID.remove(it) }
+        } else {
+            maxId = max(maxId, id)
+            habitById[id] = h
+            h.uuid?.let { habitByUUID[it] = h }
+        }
+        val start = when {
+            removedAt < 0 -> insertedAt
+            insertedAt < 0 -> removedAt
+            else -> min(removedAt, insertedAt)
+        }
+        val end = if (removedAt < 0 || insertedAt < 0) list.size else max(removedAt, insertedAt) + 1
+        for (position in start until end) positionById[checkNotNull(list[position].id)] = position
+    }
+
+    private fun reindex() {
+        habitById.clear()
+        habitByUUID.clear()
+        positionById.clear()
+        maxId = -1L
+        for ((position, h) in list.withIndex()) {
+            val id = checkNotNull(h.id)
+            maxId = max(maxId, id)
+            habitById[id] = h
+            positionById[id] = position
+            h.uuid?.let { habitByUUID[it] = h }
+        }
+    }
 }
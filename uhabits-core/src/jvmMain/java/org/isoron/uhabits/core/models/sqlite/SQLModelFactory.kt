@@ -35,15 +35,28 @@ class SQLModelFactory
 @Inject constructor(
     val database: Database
 ) : ModelFactory {
-    override fun buildOriginalEntries() = SQLiteEntryList(database)
+    private val derivedDataCache = SQLiteDerivedDataCache(database)
+
+    override fun buildOriginalEntries() = SQLiteEntryList(database, derivedDataCache)
     override fun buildComputedEntries() = EntryList()
     override fun buildHabitList() = SQLiteHabitList(this)
     override fun buildScoreList() = ScoreList()
     override fun buildStreakList() = StreakList()
+    override fun buildDerivedDataCache() = derivedDataCache
 
     override fun buildHabitListRepository() =
         Repository(HabitRecord::class.java, database)
 
     override fun buildRepetitionListRepository() =
         Repository(EntryRecord::class.java, database)
+
+    override fun runInTransaction(block: () -> Unit) {
+        database.beginTransaction()
+        try {
+            block()
+            database.setTransactionSuccessful()
+        } finally {
+            database.endTransaction()
+        }
+    }
 }
@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2016-2025 Álinson Santos Xavier <git@axavier.org>
+ *
+ * This file is part of Loop Habit Tracker.
+ *
+ * Loop Habit Tracker is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Loop Habit Tracker is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.isoron.uhabits.core.models.sqlite
+
+import org.isoron.uhabits.core.database.Database
+import org.isoron.uhabits.core.database.Repository
+import org.isoron.uhabits.core.models.DerivedDataCache
+import org.isoron.uhabits.core.models.ScoreList
+import org.isoron.uhabits.core.models.Streak
+import org.isoron.uhabits.core.models.Timestamp
+import org.isoron.uhabits.core.models.sqlite.records.DerivedDataRecord
+import java.nio.ByteBuffer
+import java.util.Base64
+
+/**
+ * Derived data cache backed by the DerivedData table of an SQLite database.
+ *
+ * Scores are stored as the Base64 encoding of their raw binary representation, preceded by the
+ * day of the first score, so that they can be restored without any loss of precision. Streaks
+ * are stored as a comma-separated list of start and end days.
+ *
+ * Only the generations are guarded by the lock of this cache. The database is never queried
+ * while holding it, since the database may be held, inside a transaction, by a thread waiting
+ * for the lock.
+ */
+class SQLiteDerivedDataCache(database: Database) : DerivedDataCache {
+    private val repository = Repository(DerivedDataRecord::class.java, database)
+    private val generations = HashMap<Long, Long>()
+
+    /**
+     * Serializes [save], so that two snapshots of the same habit are never inserted at once. It
+     * is never needed by [invalidate], which may be called inside a transaction.
+     */
+    private val saveLock = Any()
+
+    override fun load(habitId: Long, key: Long): DerivedDataCache.Snapshot? {
+        val record = repository.findFirst("where habit = ?", habitId.toString()) ?: return null
+        if (record.version != VERSION || record.hash != key) return null
+        return try {
+            DerivedDataCache.Snapshot(
+                scores = decodeScores(record.scores!!),
+                streaks = decodeStreaks(record.streaks!!)
+            )
+        } catch (e: IllegalArgumentException) {
+            null
+        }
+    }
+
+    @Synchronized
+    override fun getGeneration(habitId: Long): Long {
+        return generations[habitId] ?: 0L
+    }
+
+    override fun save(
+        habitId: Long,
+        key: Long,
+        snapshot: DerivedDataCache.Snapshot,
+        generation: Long
+    ) {
+        synchronized(saveLock) {
+            if (generation != getGeneration(habitId)) return
+            val record = repository.findFirst("where habit = ?", habitId.toString())
+                ?: DerivedDataRecord().apply { this.habitId = habitId }
+            record.version = VERSION
+            record.hash = key
+            record.scores = encodeScores(snapshot.scores)
+            record.streaks = encodeStreaks(snapshot.streaks)
+            repository.save(record)
+
+            // If the snapshot was invalidated while it was being stored, the row may have been
+            // deleted before it was written, so it must be deleted again
+            if (generation != getGeneration(habitId)) delete(habitId)
+        }
+    }
+
+    override fun invalidate(habitId: Long) {
+        synchronized(this) {
+            generations[habitId] = getGeneration(habitId) + 1
+        }
+        delete(habitId)
+    }
+
+    private fun delete(habitId: Long) {
+        repository.execSQL("delete from DerivedData where habit = ?", habitId)
+    }
+
+    private fun encodeScores(scores: ScoreList.Snapshot): String {
+        val size = scores.values.size
+        val buffer = ByteBuffer.allocate(Long.SIZE_BYTES + size * Double.SIZE_BYTES)
+        buffer.putLong(scores.from.unixTime / Timestamp.DAY_LENGTH)
+        for (v in scores.values) buffer.putDouble(v)
+        return Base64.getEncoder().encodeToString(buffer.array())
+    }
+
+    private fun decodeScores(text: String): ScoreList.Snapshot {
+        val buffer = ByteBuffer.wrap(Base64.getDecoder().decode(text))
+        if (buffer.remaining() < Long.SIZE_BYTES) throw IllegalArgumentException("invalid scores")
+        val from = Timestamp(buffer.long * Timestamp.DAY_LENGTH)
+        val size = buffer.remaining() / Double.SIZE_BYTES
+        if (size == 0 || buffer.remaining() != size * Double.SIZE_BYTES) {
+            throw IllegalArgumentException("invalid scores")
+        }
+        return ScoreList.Snapshot(from, DoubleArray(size) { buffer.double })
+    }
+
+    private fun encodeStreaks(streaks: List<Streak>): String {
+        return streaks.joinToString(",") { s ->
+            "${s.start.unixTime / Timestamp.DAY_LENGTH}:${s.end.unixTime / Timestamp.DAY_LENGTH}"
+        }
+    }
+
+    private fun decodeStreaks(text: String): List<Streak> {
+        if (text.isEmpty()) return emptyList()
+        return text.split(",").map { s ->
+            val parts = s.split(":")
+            if (parts.size != 2) throw IllegalArgumentException("invalid streaks")
+            Streak(
+                Timestamp(parts[0].toLong() * Timestamp.DAY_LENGTH),
+                Timestamp(parts[1].toLong() * Timestamp.DAY_LENGTH)
+            )
+        }
+    }
+
+    companion object {
+        /**
+         * Version of the stored format. Snapshots stored with a different version are ignored.
+         */
+        const val VERSION = 2
+    }
+}
@@ -21,56 +21,218 @@ package org.isoron.uhabits.core.models.sqlite
 
 import org.isoron.uhabits.core.database.Database
 import org.isoron.uhabits.core.database.Repository
+import org.isoron.uhabits.core.models.DerivedDataCache
 import org.isoron.uhabits.core.models.Entry
 import org.isoron.uhabits.core.models.EntryList
 import org.isoron.uhabits.core.models.Frequency
 import org.isoron.uhabits.core.models.Timestamp
+import org.isoron.uhabits.core.models.WeekdayFrequency
 import org.isoron.uhabits.core.models.sqlite.records.EntryRecord
+import kotlin.math.max
+import kotlin.math.min
 
-class SQLiteEntryList(database: Database) : EntryList() {
+/**
+ * Entry list backed by the Repetitions table of an SQLite database.
+ *
+ * Entries are loaded lazily. Methods that only need a limited range of days, such as [get] and
+ * [getByInterval], load just that range from the database, while methods that need the entire
+ * history, such as [getKnown], load all entries. The loaded range is always kept contiguous, and
+ * grows as needed.
+ *
+ * Whenever the entries change, the scores and streaks stored for the habit in [derivedDataCache],
+ * if any, are invalidated.
+ *
+ * The database is never queried while holding the lock of this list, since the database may be
+ * held, inside a transaction, by a thread waiting for that lock. Records read from the database
+ * are discarded, and read again, if the list is modified while they are being read.
+ */
+class SQLiteEntryList(
+    private val database: Database,
+    private val derivedDataCache: DerivedDataCache? = null
+) : EntryList() {
     val repository = Repository(EntryRecord::class.java, database)
     var habitId: Long? = null
     var isLoaded = false
 
+    /**
+     * Oldest and newest timestamps loaded so far, in milliseconds, if the entire history has not
+     * been loaded yet.
+     */
+    private var loadedFrom: Long? = null
+    private var loadedTo: Long? = null
+
+    /**
+     * Number of times the entries have been modified, used to detect modifications made while
+     * records were being read from the database.
+     */
+    private var version = 0L
+
     private fun loadRecords() {
-        if (isLoaded) return
         val habitId = habitId ?: throw IllegalStateException("habitId must be set")
-        val records = repository.findAll(
-            "where habit = ? order by timestamp",
-            habitId.toString()
+        while (true) {
+            val version = synchronized(this) {
+                if (isLoaded) return
+                this.version
+            }
+            val records = repository.findAll(
+                "where habit = ? order by timestamp",
+                habitId.toString()
+            )
+            synchronized(this) {
+                if (isLoaded) return
+                if (version == this.version) {
+                    for (rec in records) super.add(rec.toEntry())
+                    isLoaded = true
+                    loadedFrom = null
+                    loadedTo = null
+                    return
+                }
+            }
+        }
+    }
+
+    /**
+     * Makes sure that all entries between the given timestamps (inclusive) have been loaded,
+     * fetching from the database only the days that have not been loaded before.
+     */
+    private fun loadInterval(from: Timestamp, to: Timestamp) {
+        if (from.isNewerThan(to)) return
+        val habitId = habitId ?: throw IllegalStateException("habitId must be set")
+        val start = from.unixTime
+        val end = to.unixTime
+        while (true) {
+            val currentFrom: Long?
+            val currentTo: Long?
+            val version = synchronized(this) {
+                if (isLoaded) return
+                currentFrom = loadedFrom
+                currentTo = loadedTo
+                this.version
+            }
+            val records = ArrayList<EntryRecord>()
+            if (currentFrom == null || currentTo == null) {
+                records.addAll(findRange(habitId, start, end))
+            } else {
+                if (start >= currentFrom && end <= currentTo) return
+                if (start < currentFrom) {
+                    records.addAll(findRange(habitId, start, currentFrom - Timestamp.DAY_LENGTH))
+                }
+                if (end > currentTo) {
+                    records.addAll(findRange(habitId, currentTo + Timestamp.DAY_LENGTH, end))
+                }
+            }
+            synchronized(this) {
+                if (isLoaded) return
+                val isUnchanged = version == this.version &&
+                    currentFrom == loadedFrom && currentTo == loadedTo
+                if (isUnchanged) {
+                    for (rec in records) super.add(rec.toEntry())
+                    loadedFrom = min(start, currentFrom ?: start)
+                    loadedTo = max(end, currentTo ?: end)
+                    return
+                }
+            }
+        }
+    }
+
+    private fun findRange(habitId: Long, start: Long, end: Long): List<EntryRecord> {
+        return repository.findAll(
+            "where habit = ? and timestamp between ? and ? order by timestamp",
+            habitId.toString(),
+            start.toString(),
+            end.toString()
         )
-        for (rec in records) super.add(rec.toEntry())
-        isLoaded = true
     }
 
     override fun get(timestamp: Timestamp): Entry {
-        loadRecords()
+        loadInterval(timestamp, timestamp)
         return super.get(timestamp)
     }
 
     override fun getByInterval(from: Timestamp, to: Timestamp): List<Entry> {
-        loadRecords()
+        loadInterval(from, to)
         return super.getByInterval(from, to)
     }
 
+    override fun getValuesByInterval(from: Timestamp, to: Timestamp, result: IntArray) {
+        loadInterval(from, to)
+        super.getValuesByInterval(from, to, result)
+    }
+
+    override fun getNotesByInterval(from: Timestamp, to: Timestamp, result: Array<String>) {
+        loadInterval(from, to)
+        super.getNotesByInterval(from, to, result)
+    }
+
     override fun add(entry: Entry) {
-        loadRecords()
         val habitId = habitId ?: throw IllegalStateException("habitId must be set")
 
+        val where = "habit = ? and timestamp = ?"
+        val timestamp = entry.timestamp.unixTime.toString()
+        if (entry.value == Entry.UNKNOWN && entry.notes.isEmpty()) {
+            // Nothing to store, so simply remove existing row
+            database.delete("repetitions", where, habitId.toString(), timestamp)
+        } else {
+            // Update existing row in place, or insert a new one if there is none
+            val values = mapOf("value" to entry.value, "notes" to entry.notes)
+            val id = habitId.toString()
+            if (database.update("repetitions", values, where, id, timestamp) == 0) {
+                database.insert(
+                    "repetitions",
+                    mapOf(
+                        "habit" to habitId,
+                        "timestamp" to entry.timestamp.unixTime,
+                        "value" to entry.value,
+                        "notes" to entry.notes
+                    )
+                )
+            }
+        }
+
+        // Add to memory list
+        synchronized(this) {
+            super.add(entry)
+            version++
+        }
+        invalidateDerivedData()
+    }
+
+    override fun addAll(entries: Collection<Entry>) {
+        val habitId = habitId ?: throw IllegalStateException("habitId must be set")
+        if (entries.isEmpty()) return
+
+        // If the same timestamp appears more than once, only the last entry is kept
+        val latest = LinkedHashMap<Timestamp, Entry>()
+        for (entry in entries) latest[entry.timestamp] = entry
+
         // Remove existing rows
-        repository.execSQL(
-            "delete from repetitions where habit = ? and timestamp = ?",
-            habitId.toString(),
-            entry.timestamp.unixTime.toString()
-        )
+        for (chunk in latest.keys.chunked(MAX_DELETE_PARAMS)) {
+            val params = ArrayList<Any>(chunk.size + 1)
+            params.add(habitId)
+            for (timestamp in chunk) params.add(timestamp.unixTime)
+            repository.execSQL(
+                "delete from repetitions where habit = ? and timestamp in (" +
+                    chunk.joinToString(", ") { "?" } + ")",
+                *params.toTypedArray()
+            )
+        }
 
-        // Add new row
-        val record = EntryRecord().apply { copyFrom(entry) }
-        record.habitId = habitId
-        repository.save(record)
+        // Add new rows
+        repository.saveAll(
+            latest.values.map { entry ->
+                EntryRecord().apply {
+                    copyFrom(entry)
+                    this.habitId = habitId
+                }
+            }
+        )
 
         // Add to memory list
-        super.add(entry)
+        synchronized(this) {
+            super.addAll(latest.values)
+            version++
+        }
+        invalidateDerivedData()
     }
 
     override fun getKnown(): List<Entry> {
@@ -78,15 +240,74 @@ class SQLiteEntryList(database: Database) : EntryList() {
         return super.getKnown()
     }
 
-    override fun recomputeFrom(originalEntries: EntryList, frequency: Frequency, isNumerical: Boolean) {
+    override fun getOldestKnown(): Timestamp? {
+        if (isLoaded) return super.getOldestKnown()
+        val habitId = habitId ?: throw IllegalStateException("habitId must be set")
+        val record = repository.findFirst(
+            "where habit = ? order by timestamp limit 1",
+            habitId.toString()
+        )
+        return record?.toEntry()?.timestamp
+    }
+
+    override fun getNewestKnown(): Timestamp? {
+        if (isLoaded) return super.getNewestKnown()
+        val habitId = habitId ?: throw IllegalStateException("habitId must be set")
+        val record = repository.findFirst(
+            "where habit = ? order by timestamp desc limit 1",
+            habitId.toString()
+        )
+        return record?.toEntry()?.timestamp
+    }
+
+    override fun getWeekdayFrequency(isNumerical: Boolean): WeekdayFrequency {
+        loadRecords()
+        return super.getWeekdayFrequency(isNumerical)
+    }
+
+    override fun recomputeFrom(
+        originalEntries: EntryList,
+        frequency: Frequency,
+        isNumerical: Boolean,
+        changedDay: Timestamp?
+    ): ClosedRange<Timestamp>? {
+        throw UnsupportedOperationException()
+    }
+
+    override fun recomputeRecentFrom(
+        originalEntries: EntryList,
+        frequency: Frequency,
+        isNumerical: Boolean,
+        since: Timestamp
+    ) {
         throw UnsupportedOperationException()
     }
 
     override fun clear() {
-        super.clear()
         repository.execSQL(
             "delete from repetitions where habit = ?",
             habitId.toString()
         )
+        synchronized(this) {
+            super.clear()
+            version++
+        }
+        invalidateDerivedData()
+    }
+
+    /**
+     * Must be called after the entries in memory have been updated, so that a snapshot computed
+     * from the previous entries is never stored after the invalidation.
+     */
+    private fun invalidateDerivedData() {
+        habitId?.let { derivedDataCache?.invalidate(it) }
+    }
+
+    companion object {
+        /**
+         * Maximum number of timestamps removed by a single delete statement, chosen to stay well
+         * below the limit on the number of parameters imposed by older versions of SQLite.
+         */
+        private const val MAX_DELETE_PARAMS = 500
     }
 }
@@ -137,6 +137,7 @@ class SQLiteHabitList @Inject constructor(private val modelFactory: ModelFactory
         ) ?: throw RuntimeException("habit not in database")
         repository.executeAsTransaction {
             h.originalEntries.clear()
+            h.invalidate()
             repository.remove(record)
         }
         rebuildOrder()
@@ -148,6 +149,7 @@ class SQLiteHabitList @Inject constructor(private val modelFactory: ModelFactory
         list.removeAll()
         repository.execSQL("delete from habits")
         repository.execSQL("delete from repetitions")
+        repository.execSQL("delete from DerivedData")
         observable.notifyListeners()
     }
 
@@ -213,6 +215,13 @@ class SQLiteHabitList @Inject constructor(private val modelFactory: ModelFactory
         observable.notifyListeners()
     }
 
+    @Synchronized
+    override fun resort(habits: List<Habit>) {
+        loadRecords()
+        list.resort(habits)
+        observable.notifyListeners()
+    }
+
     @Synchronized
     fun reload() {
         loaded = false
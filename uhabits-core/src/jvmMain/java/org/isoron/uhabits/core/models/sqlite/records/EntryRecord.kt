@@ -26,7 +26,7 @@ import org.isoron.uhabits.core.models.Timestamp
 /**
  * The SQLite database record corresponding to a [Entry].
  */
-@Table(name = "Repetitions")
+@Table(name = "Repetitions", mapper = EntryRecordMapper::class)
 class EntryRecord {
     var habit: HabitRecord? = null
 
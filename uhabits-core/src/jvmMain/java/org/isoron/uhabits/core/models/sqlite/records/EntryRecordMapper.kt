@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2016-2025 Álinson Santos Xavier <git@axavier.org>
+ *
+ * This file is part of Loop Habit Tracker.
+ *
+ * Loop Habit Tracker is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Loop Habit Tracker is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.isoron.uhabits.core.models.sqlite.records
+
+import org.isoron.uhabits.core.database.Cursor
+import org.isoron.uhabits.core.database.RecordMapper
+
+/**
+ * Maps [EntryRecord] to and from rows of the Repetitions table.
+ */
+class EntryRecordMapper : RecordMapper<EntryRecord> {
+    override val columns = arrayOf("habit", "timestamp", "value", "id", "notes")
+
+    override fun read(cursor: Cursor) = EntryRecord().apply {
+        habitId = cursor.getLong(0)
+        timestamp = cursor.getLong(1)
+        value = cursor.getInt(2)
+        id = cursor.getLong(3)
+        notes = cursor.getString(4)
+    }
+
+    override fun write(record: EntryRecord, values: MutableMap<String, Any?>) {
+        values["habit"] = record.habitId
+        values["timestamp"] = record.timestamp
+        values["value"] = record.value
+        values["id"] = record.id
+        values["notes"] = record.notes
+    }
+
+    override fun getId(record: EntryRecord) = record.id
+
+    override fun setId(record: EntryRecord, id: Long?) {
+        record.id = id
+    }
+}
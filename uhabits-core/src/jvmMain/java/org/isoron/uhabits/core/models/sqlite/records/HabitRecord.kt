@@ -32,7 +32,7 @@ import java.util.Objects.requireNonNull
 /**
  * The SQLite database record corresponding to a [Habit].
  */
-@Table(name = "habits")
+@Table(name = "habits", mapper = HabitRecordMapper::class)
 class HabitRecord {
     @field:Column
     var description: String? = null
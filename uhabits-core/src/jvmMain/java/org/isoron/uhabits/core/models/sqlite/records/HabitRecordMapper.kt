@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2016-2025 Álinson Santos Xavier <git@axavier.org>
+ *
+ * This file is part of Loop Habit Tracker.
+ *
+ * Loop Habit Tracker is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Loop Habit Tracker is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.isoron.uhabits.core.models.sqlite.records
+
+import org.isoron.uhabits.core.database.Cursor
+import org.isoron.uhabits.core.database.RecordMapper
+
+/**
+ * Maps [HabitRecord] to and from rows of the habits table.
+ */
+class HabitRecordMapper : RecordMapper<HabitRecord> {
+    override val columns = arrayOf(
+        "description",
+        "question",
+        "name",
+        "freq_num",
+        "freq_den",
+        "color",
+        "position",
+        "reminder_hour",
+        "reminder_min",
+        "reminder_days",
+        "highlight",
+        "archived",
+        "type",
+        "target_value",
+        "target_type",
+        "unit",
+        "id",
+        "uuid"
+    )
+
+    override fun read(cursor: Cursor) = HabitRecord().apply {
+        description = cursor.getString(0)
+        question = cursor.getString(1)
+        name = cursor.getString(2)
+        freqNum = cursor.getInt(3)
+        freqDen = cursor.getInt(4)
+        color = cursor.getInt(5)
+        position = cursor.getInt(6)
+        reminderHour = cursor.getInt(7)
+        reminderMin = cursor.getInt(8)
+        reminderDays = cursor.getInt(9)
+        highlight = cursor.getInt(10)
+        archived = cursor.getInt(11)
+        type = cursor.getInt(12)
+        targetValue = cursor.getDouble(13)
+        targetType = cursor.getInt(14)
+        unit = cursor.getString(15)
+        id = cursor.getLong(16)
+        uuid = cursor.getString(17)
+    }
+
+    override fun write(record: HabitRecord, values: MutableMap<String, Any?>) {
+        values["description"] = record.description
+        values["question"] = record.question
+        values["name"] = record.name
+        values["freq_num"] = record.freqNum
+        values["freq_den"] = record.freqDen
+        values["color"] = record.color
+        values["position"] = record.position
+        values["reminder_hour"] = record.reminderHour
+        values["reminder_min"] = record.reminderMin
+        values["reminder_days"] = record.reminderDays
+        values["highlight"] = record.highlight
+        values["archived"] = record.archived
+        values["type"] = record.type
+        values["target_value"] = record.targetValue
+        values["target_type"] = record.targetType
+        values["unit"] = record.unit
+        values["id"] = record.id
+        values["uuid"] = record.uuid
+    }
+
+    override fun getId(record: HabitRecord) = record.id
+
+    override fun setId(record: HabitRecord, id: Long?) {
+        record.id = id
+    }
+}
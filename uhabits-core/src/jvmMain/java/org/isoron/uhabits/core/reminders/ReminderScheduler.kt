@@ -44,9 +44,15 @@ class ReminderScheduler @Inject constructor(
 ) : CommandRunner.Listener {
     @Synchronized
     override fun onCommandFinished(command: Command) {
-        if (command is CreateRepetitionCommand) return
-        if (command is ChangeHabitColorCommand) return
-        scheduleAll()
+        onCommandsFinished(listOf(command))
+    }
+
+    @Synchronized
+    override fun onCommandsFinished(commands: List<Command>) {
+        val affectsReminders = commands.any {
+            it !is CreateRepetitionCommand && it !is ChangeHabitColorCommand
+        }
+        if (affectsReminders) scheduleAll()
     }
 
     @Synchronized
@@ -113,11 +119,15 @@ class ReminderScheduler @Inject constructor(
         sys.log("ReminderScheduler", "Scheduling all alarms")
         val reminderHabits = habitList.getFiltered(HabitMatcher.WITH_ALARM)
         for (habit in reminderHabits) schedule(habit)
+        reminderHabits.close()
     }
 
     @Synchronized
     fun hasHabitsWithReminders(): Boolean {
-        return !habitList.getFiltered(HabitMatcher.WITH_ALARM).isEmpty
+        val reminderHabits = habitList.getFiltered(HabitMatcher.WITH_ALARM)
+        val isEmpty = reminderHabits.isEmpty
+        reminderHabits.close()
+        return !isEmpty
     }
 
     @Synchronized
@@ -18,11 +18,16 @@
  */
 package org.isoron.uhabits.core.ui.screens.habits.list
 
-import org.apache.commons.lang3.ArrayUtils
 import org.isoron.uhabits.core.AppScope
+import org.isoron.uhabits.core.commands.ArchiveHabitsCommand
+import org.isoron.uhabits.core.commands.ChangeHabitColorCommand
 import org.isoron.uhabits.core.commands.Command
 import org.isoron.uhabits.core.commands.CommandRunner
+import org.isoron.uhabits.core.commands.CreateHabitCommand
 import org.isoron.uhabits.core.commands.CreateRepetitionCommand
+import org.isoron.uhabits.core.commands.DeleteHabitsCommand
+import org.isoron.uhabits.core.commands.EditHabitCommand
+import org.isoron.uhabits.core.commands.UnarchiveHabitsCommand
 import org.isoron.uhabits.core.io.Logging
 import org.isoron.uhabits.core.models.Habit
 import org.isoron.uhabits.core.models.HabitList
@@ -34,7 +39,7 @@ import org.isoron.uhabits.core.utils.DateUtils.Companion.getTodayWithOffset
 import java.util.ArrayList
 import java.util.Arrays
 import java.util.HashMap
-import java.util.LinkedList
+import java.util.HashSet
 import java.util.TreeSet
 import javax.inject.Inject
 
@@ -62,7 +67,7 @@ class HabitCardListCache @Inject constructor(
     private val logger = logging.getLogger("HabitCardListCache")
 
     private var checkmarkCount = 0
-    private var currentFetchTask: Task? = null
+    private var currentFetchTask: RefreshTask? = null
     private var listener: Listener
     private val data: CacheData
     private var filteredHabits: HabitList
@@ -136,11 +141,32 @@ class HabitCardListCache @Inject constructor(
 
     @Synchronized
     override fun onCommandFinished(command: Command) {
-        if (command is CreateRepetitionCommand) {
-            command.habit.id?.let { refreshHabit(it) }
-        } else {
-            refreshAllHabits()
+        onCommandsFinished(listOf(command))
+    }
+
+    /**
+     * Refreshes the cache once for the entire batch, recomputing only the habits modified by the
+     * commands, unless one of them requires a full refresh.
+     */
+    @Synchronized
+    override fun onCommandsFinished(commands: List<Command>) {
+        val ids = HashSet<Long>()
+        for (command in commands) {
+            when (command) {
+                is CreateRepetitionCommand -> command.habit.id?.let { ids.add(it) }
+                is EditHabitCommand -> ids.add(command.habitId)
+                is ChangeHabitColorCommand -> command.selected.mapNotNullTo(ids) { it.id }
+                is ArchiveHabitsCommand,
+                is UnarchiveHabitsCommand,
+                is CreateHabitCommand,
+                is DeleteHabitsCommand -> Unit
+                else -> {
+                    refreshAllHabits()
+                    return
+                }
+            }
         }
+        refreshHabits(ids)
     }
 
     @Synchronized
@@ -150,15 +176,33 @@ class HabitCardListCache @Inject constructor(
 
     @Synchronized
     fun refreshAllHabits() {
-        if (currentFetchTask != null) currentFetchTask!!.cancel()
-        val task = RefreshTask()
-        currentFetchTask = task
-        taskRunner.execute(task)
+        startRefresh(null)
     }
 
     @Synchronized
     fun refreshHabit(id: Long) {
-        taskRunner.execute(RefreshTask(id))
+        refreshHabits(setOf(id))
+    }
+
+    /**
+     * Updates the list of habits, recomputing the data only for the habits provided and for
+     * habits that were not previously in the cache.
+     */
+    @Synchronized
+    fun refreshHabits(ids: Set<Long>) {
+        val pending = currentFetchTask
+        startRefresh(if (pending == null) ids else pending.targetIds?.plus(ids))
+    }
+
+    /**
+     * Cancels the pending refresh, if any, and starts a new one. The results of the cancelled
+     * refresh are discarded, so [targetIds] must include the habits it was going to recompute.
+     */
+    private fun startRefresh(targetIds: Set<Long>?) {
+        currentFetchTask?.cancel()
+        val task = RefreshTask(targetIds)
+        currentFetchTask = task
+        taskRunner.execute(task)
     }
 
     @Synchronized
@@ -188,6 +232,7 @@ class HabitCardListCache @Inject constructor(
 
     @Synchronized
     fun setFilter(matcher: HabitMatcher) {
+        if (filteredHabits !== allHabits) filteredHabits.close()
         filteredHabits = allHabits.getFiltered(matcher)
     }
 
@@ -210,46 +255,21 @@ class HabitCardListCache @Inject constructor(
 
     private inner class CacheData {
         val idToHabit: HashMap<Long?, Habit> = HashMap()
-        val habits: MutableList<Habit>
-        val checkmarks: HashMap<Long?, IntArray>
-        val scores: HashMap<Long?, Double>
-        val notes: HashMap<Long?, Array<String>>
-
-        @Synchronized
-        fun copyCheckmarksFrom(oldData: CacheData) {
-            val empty = IntArray(checkmarkCount)
-            for (id in idToHabit.keys) {
-                if (oldData.checkmarks.containsKey(id)) {
-                    checkmarks[id] =
-                        oldData.checkmarks[id]!!
-                } else {
-                    checkmarks[id] = empty
-                }
-            }
-        }
-
-        @Synchronized
-        fun copyNoteIndicatorsFrom(oldData: CacheData) {
-            val empty = (0..checkmarkCount).map { "" }.toTypedArray()
-            for (id in idToHabit.keys) {
-                if (oldData.notes.containsKey(id)) {
-                    notes[id] =
-                        oldData.notes[id]!!
-                } else {
-                    notes[id] = empty
-                }
-            }
-        }
+        val habits: MutableList<Habit> = ArrayList()
+        val checkmarks: HashMap<Long?, IntArray> = HashMap()
+        val scores: HashMap<Long?, Double> = HashMap()
+        val notes: HashMap<Long?, Array<String>> = HashMap()
 
+        /**
+         * Copies the scores, checkmarks and notes of the current habits from another CacheData.
+         * Habits that are not present in the other CacheData are left without any data.
+         */
         @Synchronized
-        fun copyScoresFrom(oldData: CacheData) {
+        fun copyFrom(oldData: CacheData) {
             for (id in idToHabit.keys) {
-                if (oldData.scores.containsKey(id)) {
-                    scores[id] =
-                        oldData.scores[id]!!
-                } else {
-                    scores[id] = 0.0
-                }
+                oldData.scores[id]?.let { scores[id] = it }
+                oldData.checkmarks[id]?.let { checkmarks[id] = it }
+                oldData.notes[id]?.let { notes[id] = it }
             }
         }
 
@@ -261,65 +281,61 @@ class HabitCardListCache @Inject constructor(
                 idToHabit[h.id] = h
             }
         }
-
-        /**
-         * Creates a new CacheData without any content.
-         */
-        init {
-            habits = LinkedList()
-            checkmarks = HashMap()
-            scores = HashMap()
-            notes = HashMap()
-        }
     }
 
-    private inner class RefreshTask : Task {
-        private val newData: CacheData
-        private val targetId: Long?
+    /**
+     * Task that fetches the current list of habits and recomputes the data of the habits that
+     * may have changed, which are either the habits in [targetIds], or all habits if [targetIds]
+     * is null. Habits that are new to the cache are always computed. The results are applied to
+     * the cache all at once, notifying the listener only about the habits that were actually
+     * inserted, moved or modified.
+     */
+    private inner class RefreshTask(val targetIds: Set<Long>?) : Task {
+        private val newData = CacheData()
+        private val changedIds = HashSet<Long>()
+        @Volatile
         private var isCancelled = false
         private var runner: TaskRunner? = null
 
-        constructor() {
-            newData = CacheData()
-            targetId = null
-            isCancelled = false
-        }
-
-        constructor(targetId: Long) {
-            newData = CacheData()
-            this.targetId = targetId
-        }
-
-        @Synchronized
         override fun cancel() {
             isCancelled = true
         }
 
+        override fun isCanceled() = isCancelled
+
         @Synchronized
         override fun doInBackground() {
             newData.fetchHabits()
-            newData.copyScoresFrom(data)
-            newData.copyCheckmarksFrom(data)
-            newData.copyNoteIndicatorsFrom(data)
+            newData.copyFrom(data)
             val today = getTodayWithOffset()
             val dateFrom = today.minus(checkmarkCount - 1)
-            if (runner != null) runner!!.publishProgress(this, -1)
-            for (position in newData.habits.indices) {
+            val checkmarks = IntArray(checkmarkCount)
+            val notes = Array(checkmarkCount) { "" }
+            for (habit in newData.habits) {
                 if (isCancelled) return
-                val habit = newData.habits[position]
-                if (targetId != null && targetId != habit.id) continue
-                newData.scores[habit.id] = habit.scores[today].value
-                val list: MutableList<Int> = ArrayList()
-                val notes: MutableList<String> = ArrayList()
-                for ((_, value, note) in habit.computedEntries.getByInterval(dateFrom, today)) {
-                    list.add(value)
-                    notes.add(note)
+                val id = habit.id!!
+                val oldCheckmarks = newData.checkmarks[id]
+                val oldNotes = newData.notes[id]
+                val oldScore = newData.scores[id]
+                val isKnown = oldCheckmarks != null && oldNotes != null && oldScore != null &&
+                    oldCheckmarks.size == checkmarkCount
+                if (isKnown && targetIds != null && id !in targetIds) continue
+
+                val score = habit.scores.getValue(today)
+                val entries = habit.getRecentComputedEntries(dateFrom)
+                entries.getValuesByInterval(dateFrom, today, checkmarks)
+                entries.getNotesByInterval(dateFrom, today, notes)
+                if (isKnown && score == oldScore &&
+                    checkmarks.contentEquals(oldCheckmarks) && notes.contentEquals(oldNotes)
+                ) {
+                    continue
                 }
-                val entries = list.toTypedArray()
-                newData.checkmarks[habit.id] = ArrayUtils.toPrimitive(entries)
-                newData.notes[habit.id] = notes.toTypedArray()
-                runner!!.publishProgress(this, position)
+                newData.scores[id] = score
+                newData.checkmarks[id] = checkmarks.copyOf()
+                newData.notes[id] = notes.copyOf()
+                changedIds.add(id)
             }
+            runner!!.publishProgress(this, 0)
         }
 
         @Synchronized
@@ -329,13 +345,23 @@ class HabitCardListCache @Inject constructor(
 
         @Synchronized
         override fun onPostExecute() {
-            currentFetchTask = null
+            if (currentFetchTask === this) currentFetchTask = null
             listener.onRefreshFinished()
         }
 
         @Synchronized
         override fun onProgressUpdate(currentPosition: Int) {
-            if (currentPosition < 0) processRemovedHabits() else processPosition(currentPosition)
+            // A newer refresh has been started, and its results must not be overwritten
+            if (isCancelled) return
+            processRemovedHabits()
+            for (position in newData.habits.indices) {
+                val habit = newData.habits[position]
+                if (position < data.habits.size && data.habits[position] === habit) {
+                    performUpdate(habit.id!!, position)
+                } else {
+                    processPosition(position)
+                }
+            }
         }
 
         @Synchronized
@@ -371,6 +397,7 @@ class HabitCardListCache @Inject constructor(
 
         @Synchronized
         private fun performUpdate(id: Long, position: Int) {
+            if (id !in changedIds) return
             val oldScore = data.scores[id]!!
             val oldCheckmarks = data.checkmarks[id]
             val oldNoteIndicators = data.notes[id]
@@ -52,7 +52,7 @@ open class ListHabitsBehavior @Inject constructor(
     }
 
     fun onEdit(habit: Habit, timestamp: Timestamp?, x: Float, y: Float) {
-        val entry = habit.computedEntries.get(timestamp!!)
+        val entry = habit.getRecentComputedEntries(timestamp!!).get(timestamp)
         if (habit.type == HabitType.NUMERICAL) {
             val oldValue = entry.value.toDouble() / 1000
             screen.showNumberPopup(oldValue, entry.notes) { newValue: Double, newNotes: String ->
@@ -20,9 +20,9 @@
 package org.isoron.uhabits.core.ui.screens.habits.show.views
 
 import org.isoron.uhabits.core.models.Entry
+import org.isoron.uhabits.core.models.EntryAggregator
 import org.isoron.uhabits.core.models.Habit
 import org.isoron.uhabits.core.models.PaletteColor
-import org.isoron.uhabits.core.models.groupedSum
 import org.isoron.uhabits.core.preferences.Preferences
 import org.isoron.uhabits.core.ui.views.Theme
 import org.isoron.uhabits.core.utils.DateUtils
@@ -58,12 +58,13 @@ class BarCardPresenter(
                 boolBucketSizes[boolSpinnerPosition]
             }
             val today = DateUtils.getTodayWithOffset()
-            val oldest = habit.computedEntries.getKnown().lastOrNull()?.timestamp ?: today
-            val entries = habit.computedEntries.getByInterval(oldest, today).groupedSum(
-                truncateField = ScoreCardPresenter.getTruncateField(bucketSize),
+            val oldest = habit.computedEntries.getOldestKnown() ?: today
+            val entries = EntryAggregator(
+                values = habit.computedEntries.getValuesByInterval(oldest, today),
+                to = today,
                 firstWeekday = firstWeekday,
                 isNumerical = habit.isNumerical
-            )
+            ).getSums(ScoreCardPresenter.getTruncateField(bucketSize))
             return BarCardState(
                 theme = theme,
                 entries = entries,
@@ -21,14 +21,13 @@ package org.isoron.uhabits.core.ui.screens.habits.show.views
 
 import org.isoron.uhabits.core.models.Habit
 import org.isoron.uhabits.core.models.PaletteColor
-import org.isoron.uhabits.core.models.Timestamp
+import org.isoron.uhabits.core.models.WeekdayFrequency
 import org.isoron.uhabits.core.ui.views.Theme
-import java.util.HashMap
 
 data class FrequencyCardState(
     val color: PaletteColor,
     val firstWeekday: Int,
-    val frequency: HashMap<Timestamp, Array<Int>>,
+    val frequency: WeekdayFrequency,
     val theme: Theme,
     val isNumerical: Boolean
 )
@@ -42,7 +41,7 @@ class FrequencyCardPresenter {
         ) = FrequencyCardState(
             color = habit.color,
             isNumerical = habit.isNumerical,
-            frequency = habit.originalEntries.computeWeekdayFrequency(
+            frequency = habit.originalEntries.getWeekdayFrequency(
                 isNumerical = habit.isNumerical
             ),
             firstWeekday = firstWeekday,
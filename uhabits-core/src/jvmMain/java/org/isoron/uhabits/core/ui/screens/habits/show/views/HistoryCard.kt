@@ -160,7 +160,7 @@ class HistoryCardPresenter(
             theme: Theme
         ): HistoryCardState {
             val today = DateUtils.getTodayWithOffset()
-            val oldest = habit.computedEntries.getKnown().lastOrNull()?.timestamp ?: today
+            val oldest = habit.computedEntries.getOldestKnown() ?: today
             val entries = habit.computedEntries.getByInterval(oldest, today)
             val series = if (habit.isNumerical) {
                 entries.map {
@@ -41,9 +41,9 @@ class OverviewCardPresenter {
             val lastMonth = today.minus(30)
             val lastYear = today.minus(365)
             val scores = habit.scores
-            val scoreToday = scores[today].value.toFloat()
-            val scoreLastMonth = scores[lastMonth].value.toFloat()
-            val scoreLastYear = scores[lastYear].value.toFloat()
+            val scoreToday = scores.getValue(today).toFloat()
+            val scoreLastMonth = scores.getValue(lastMonth).toFloat()
+            val scoreLastYear = scores.getValue(lastYear).toFloat()
             val totalCount = habit.originalEntries.getKnown()
                 .filter { it.value == Entry.YES_MANUAL }
                 .count()
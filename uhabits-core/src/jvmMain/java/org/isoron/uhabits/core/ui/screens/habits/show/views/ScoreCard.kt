@@ -22,6 +22,7 @@ package org.isoron.uhabits.core.ui.screens.habits.show.views
 import org.isoron.uhabits.core.models.Habit
 import org.isoron.uhabits.core.models.PaletteColor
 import org.isoron.uhabits.core.models.Score
+import org.isoron.uhabits.core.models.Timestamp
 import org.isoron.uhabits.core.preferences.Preferences
 import org.isoron.uhabits.core.ui.views.Theme
 import org.isoron.uhabits.core.utils.DateUtils
@@ -59,21 +60,27 @@ class ScoreCardPresenter(
         ): ScoreCardState {
             val bucketSize = BUCKET_SIZES[spinnerPosition]
             val today = DateUtils.getTodayWithOffset()
-            val oldest = habit.computedEntries.getKnown().lastOrNull()?.timestamp ?: today
+            val oldest = habit.computedEntries.getOldestKnown() ?: today
 
             val field = getTruncateField(bucketSize)
-            val scores = habit.scores.getByInterval(oldest, today).groupBy {
-                DateUtils.truncate(field, it.timestamp, firstWeekday)
-            }.map { (timestamp, scores) ->
-                Score(
-                    timestamp,
-                    scores.map {
-                        it.value
-                    }.average()
-                )
-            }.sortedBy {
-                it.timestamp
-            }.reversed()
+            val slice = habit.scores.getSliceByInterval(oldest, today)
+            val scores = ArrayList<Score>()
+            var bucket = 0L
+            var sum = 0.0
+            var count = 0
+            for (i in 0 until slice.size) {
+                val day = slice.to.unixTime - i * Timestamp.DAY_LENGTH
+                val truncated = DateUtils.truncate(field, day, firstWeekday)
+                if (count > 0 && truncated != bucket) {
+                    scores.add(Score(Timestamp(bucket), sum / count))
+                    sum = 0.0
+                    count = 0
+                }
+                bucket = truncated
+                sum += slice[i]
+                count++
+            }
+            if (count > 0) scores.add(Score(Timestamp(bucket), sum / count))
 
             return ScoreCardState(
                 color = habit.color,
@@ -19,12 +19,12 @@
 
 package org.isoron.uhabits.core.ui.screens.habits.show.views
 
+import org.isoron.uhabits.core.models.EntryAggregator
 import org.isoron.uhabits.core.models.Habit
 import org.isoron.uhabits.core.models.PaletteColor
-import org.isoron.uhabits.core.models.countSkippedDays
-import org.isoron.uhabits.core.models.groupedSum
 import org.isoron.uhabits.core.ui.views.Theme
 import org.isoron.uhabits.core.utils.DateUtils
+import org.isoron.uhabits.core.utils.DateUtils.TruncateField
 import java.util.ArrayList
 import java.util.Calendar
 import kotlin.math.max
@@ -45,55 +45,24 @@ class TargetCardPresenter {
             theme: Theme
         ): TargetCardState {
             val today = DateUtils.getTodayWithOffset()
-            val oldest = habit.computedEntries.getKnown().lastOrNull()?.timestamp ?: today
-            val entries = habit.computedEntries.getByInterval(oldest, today)
-
-            val valueToday = entries.groupedSum(
-                truncateField = DateUtils.TruncateField.DAY,
-                isNumerical = habit.isNumerical
-            ).firstOrNull()?.value ?: 0
-
-            val skippedDayToday = entries.countSkippedDays(
-                truncateField = DateUtils.TruncateField.DAY
-            ).firstOrNull()?.value ?: 0
-
-            val valueThisWeek = entries.groupedSum(
-                truncateField = DateUtils.TruncateField.WEEK_NUMBER,
+            val oldest = habit.computedEntries.getOldestKnown() ?: today
+            val aggregator = EntryAggregator(
+                values = habit.computedEntries.getValuesByInterval(oldest, today),
+                to = today,
                 firstWeekday = firstWeekday,
                 isNumerical = habit.isNumerical
-            ).firstOrNull()?.value ?: 0
-
-            val skippedDaysThisWeek = entries.countSkippedDays(
-                truncateField = DateUtils.TruncateField.WEEK_NUMBER,
-                firstWeekday = firstWeekday
-            ).firstOrNull()?.value ?: 0
-
-            val valueThisMonth = entries.groupedSum(
-                truncateField = DateUtils.TruncateField.MONTH,
-                isNumerical = habit.isNumerical
-            ).firstOrNull()?.value ?: 0
-
-            val skippedDaysThisMonth = entries.countSkippedDays(
-                truncateField = DateUtils.TruncateField.MONTH
-            ).firstOrNull()?.value ?: 0
-
-            val valueThisQuarter = entries.groupedSum(
-                truncateField = DateUtils.TruncateField.QUARTER,
-                isNumerical = habit.isNumerical
-            ).firstOrNull()?.value ?: 0
-
-            val skippedDaysThisQuarter = entries.countSkippedDays(
-                truncateField = DateUtils.TruncateField.QUARTER
-            ).firstOrNull()?.value ?: 0
-
-            val valueThisYear = entries.groupedSum(
-                truncateField = DateUtils.TruncateField.YEAR,
-                isNumerical = habit.isNumerical
-            ).firstOrNull()?.value ?: 0
+            )
 
-            val skippedDaysThisYear = entries.countSkippedDays(
-                truncateField = DateUtils.TruncateField.YEAR
-            ).firstOrNull()?.value ?: 0
+            val valueToday = aggregator.getNewestSum(TruncateField.DAY)
+            val skippedDayToday = aggregator.getNewestSkippedDays(TruncateField.DAY)
+            val valueThisWeek = aggregator.getNewestSum(TruncateField.WEEK_NUMBER)
+            val skippedDaysThisWeek = aggregator.getNewestSkippedDays(TruncateField.WEEK_NUMBER)
+            val valueThisMonth = aggregator.getNewestSum(TruncateField.MONTH)
+            val skippedDaysThisMonth = aggregator.getNewestSkippedDays(TruncateField.MONTH)
+            val valueThisQuarter = aggregator.getNewestSum(TruncateField.QUARTER)
+            val skippedDaysThisQuarter = aggregator.getNewestSkippedDays(TruncateField.QUARTER)
+            val valueThisYear = aggregator.getNewestSum(TruncateField.YEAR)
+            val skippedDaysThisYear = aggregator.getNewestSkippedDays(TruncateField.YEAR)
 
             val cal = DateUtils.getStartOfTodayCalendarWithOffset()
             val daysInMonth = cal.getActualMaximum(Calendar.DAY_OF_MONTH)
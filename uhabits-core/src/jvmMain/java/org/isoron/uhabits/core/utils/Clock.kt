@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2016-2025 Álinson Santos Xavier <git@axavier.org>
+ *
+ * This file is part of Loop Habit Tracker.
+ *
+ * Loop Habit Tracker is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Loop Habit Tracker is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.isoron.uhabits.core.utils
+
+import org.isoron.uhabits.core.AppScope
+import org.isoron.uhabits.core.models.Timestamp
+import org.isoron.uhabits.core.utils.DateUtils.Companion.DAY_LENGTH
+import org.isoron.uhabits.core.utils.DateUtils.Companion.HOUR_LENGTH
+import org.isoron.uhabits.core.utils.DateUtils.Companion.MINUTE_LENGTH
+import javax.inject.Inject
+import kotlin.math.min
+
+/**
+ * Source of the current time, used by the static functions in [DateUtils].
+ *
+ * The current day, with and without the start day offset, is cached together with the period
+ * of time during which it remains valid, so that it can be queried repeatedly (for example,
+ * inside comparators) without reading the time zone or allocating timestamps. The cache is
+ * refreshed when that period ends, at every tick of [MidnightTimer], and whenever the time zone,
+ * the start day offset or the fixed local time change.
+ */
+@AppScope
+open class Clock @Inject constructor() {
+
+    /**
+     * The current day, and the period of time, in UTC milliseconds, during which it is valid.
+     */
+    private class Day(
+        val today: Timestamp,
+        val todayWithOffset: Timestamp,
+        val validFrom: Long,
+        val validUntil: Long
+    )
+
+    @Volatile
+    private var day: Day? = null
+
+    /**
+     * Incremented whenever the cached day is discarded, so that a day computed from settings
+     * that have since changed is never stored.
+     */
+    @Volatile
+    private var generation = 0L
+
+    @Volatile
+    private var fixedLocalTime: Long? = null
+
+    @Volatile
+    var startDayHourOffset = 0
+        private set
+
+    @Volatile
+    var startDayMinuteOffset = 0
+        private set
+
+    /**
+     * The start day offset, in milliseconds.
+     */
+    val startDayOffset: Long
+        get() = startDayHourOffset * HOUR_LENGTH + startDayMinuteOffset * MINUTE_LENGTH
+
+    /**
+     * Returns the current time, in UTC milliseconds. Tests may override this method to control
+     * the passage of time.
+     */
+    protected open fun currentTimeMillis(): Long = System.currentTimeMillis()
+
+    /**
+     * Returns the given UTC time, or the current time, converted to the local time zone. If a
+     * fixed local time has been set, returns it instead.
+     */
+    fun getLocalTime(utcTimeInMillis: Long? = null): Long {
+        fixedLocalTime?.let { return it }
+        return DateUtils.removeTimezone(utcTimeInMillis ?: currentTimeMillis())
+    }
+
+    fun getToday(): Timestamp = getDay().today
+
+    fun getTodayWithOffset(): Timestamp = getDay().todayWithOffset
+
+    /**
+     * Makes the clock always return the given local time, or, if null, the actual time again.
+     */
+    fun setFixedLocalTime(localTime: Long?) {
+        fixedLocalTime = localTime
+        invalidate()
+    }
+
+    fun setStartDayOffset(hourOffset: Int, minuteOffset: Int) {
+        startDayHourOffset = hourOffset
+        startDayMinuteOffset = minuteOffset
+        invalidate()
+    }
+
+    /**
+     * Discards the cached day, so that it is computed again the next time it is needed.
+     */
+    @Synchronized
+    fun invalidate() {
+        generation++
+        day = null
+    }
+
+    private fun getDay(): Day {
+        val currentGeneration = generation
+        val fixed = fixedLocalTime
+        val now = if (fixed == null) currentTimeMillis() else 0L
+        val cached = day
+        if (cached != null && now >= cached.validFrom && now < cached.validUntil) return cached
+
+        val localTime = fixed ?: DateUtils.removeTimezone(now)
+        val offset = startDayOffset
+        val startOfToday = DateUtils.getStartOfDay(localTime)
+        val startOfTodayWithOffset = DateUtils.getStartOfDay(localTime - offset)
+        val result = if (fixed != null) {
+            Day(Timestamp(startOfToday), Timestamp(startOfTodayWithOffset), 0L, Long.MAX_VALUE)
+        } else {
+            val nextBoundary = min(startOfToday, startOfTodayWithOffset + offset) + DAY_LENGTH
+            var validUntil = now + (nextBoundary - localTime)
+
+            // If the time zone offset increases before the boundary (for example, when daylight
+            // saving time begins), the boundary is reached earlier
+            val offsetChange = DateUtils.removeTimezone(validUntil) - validUntil - (localTime - now)
+            if (offsetChange > 0) validUntil -= offsetChange
+            Day(Timestamp(startOfToday), Timestamp(startOfTodayWithOffset), now, validUntil)
+        }
+        synchronized(this) {
+            if (generation == currentGeneration) day = result
+        }
+        return result
+    }
+}
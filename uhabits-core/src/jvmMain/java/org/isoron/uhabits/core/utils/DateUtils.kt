@@ -18,24 +18,28 @@
  */
 package org.isoron.uhabits.core.utils
 
+import org.isoron.platform.time.EpochDays
 import org.isoron.uhabits.core.models.Timestamp
-import java.time.YearMonth
 import java.util.Calendar
 import java.util.Calendar.DAY_OF_MONTH
 import java.util.Calendar.DAY_OF_WEEK
 import java.util.Calendar.SHORT
-import java.util.Date
 import java.util.GregorianCalendar
 import java.util.Locale
 import java.util.TimeZone
 
 abstract class DateUtils {
     companion object {
-        private var fixedLocalTime: Long? = null
         private var fixedTimeZone: TimeZone? = null
         private var fixedLocale: Locale? = null
-        private var startDayHourOffset: Int = 0
-        private var startDayMinuteOffset: Int = 0
+
+        /**
+         * Clock that provides the current time and the current day to the functions below. The
+         * application replaces it by the injected instance during startup.
+         */
+        @JvmStatic
+        @Volatile
+        var clock = Clock()
 
         /**
          * Number of milliseconds in one second.
@@ -78,13 +82,7 @@ abstract class DateUtils {
         }
 
         @JvmStatic
-        fun getLocalTime(utcTimeInMillis: Long? = null): Long {
-            if (fixedLocalTime != null) return fixedLocalTime as Long
-
-            val tz = getTimeZone()
-            val now = utcTimeInMillis ?: Date().time
-            return now + tz.getOffset(now)
-        }
+        fun getLocalTime(utcTimeInMillis: Long? = null): Long = clock.getLocalTime(utcTimeInMillis)
 
         /**
          * Returns an array of strings with the names for each day of the week,
@@ -186,10 +184,9 @@ abstract class DateUtils {
          */
         @JvmStatic
         fun getWeekdaysInMonth(startOfMonth: Timestamp): Array<Int> {
-            val month = startOfMonth.toCalendar()[Calendar.MONTH] + 1
-            val year = startOfMonth.toCalendar()[Calendar.YEAR]
+            val day = startOfMonth.unixTime / DAY_LENGTH
             val weekday = startOfMonth.weekday
-            val monthLength = YearMonth.of(year, month).lengthOfMonth()
+            val monthLength = EpochDays.monthLength(EpochDays.year(day), EpochDays.month(day))
 
             val freq = Array(7) { 0 }
             for (day in weekday until weekday + monthLength) {
@@ -200,31 +197,30 @@ abstract class DateUtils {
         }
 
         @JvmStatic
-        fun getToday(): Timestamp = Timestamp(getStartOfToday())
+        fun getToday(): Timestamp = clock.getToday()
 
         @JvmStatic
-        fun getTodayWithOffset(): Timestamp = Timestamp(getStartOfTodayWithOffset())
+        fun getTodayWithOffset(): Timestamp = clock.getTodayWithOffset()
 
         @JvmStatic
         fun getStartOfDay(timestamp: Long): Long = (timestamp / DAY_LENGTH) * DAY_LENGTH
 
         @JvmStatic
         fun getStartOfDayWithOffset(timestamp: Long): Long {
-            val offset = startDayHourOffset * HOUR_LENGTH + startDayMinuteOffset * MINUTE_LENGTH
-            return getStartOfDay(timestamp - offset)
+            return getStartOfDay(timestamp - clock.startDayOffset)
         }
 
         @JvmStatic
-        fun getStartOfToday(): Long = getStartOfDay(getLocalTime())
+        fun getStartOfToday(): Long = getToday().unixTime
 
         @JvmStatic
         fun getStartOfTomorrowWithOffset(): Long = getUpcomingTimeInMillis(
-            startDayHourOffset,
-            startDayMinuteOffset
+            clock.startDayHourOffset,
+            clock.startDayMinuteOffset
         )
 
         @JvmStatic
-        fun getStartOfTodayWithOffset(): Long = getStartOfDayWithOffset(getLocalTime())
+        fun getStartOfTodayWithOffset(): Long = getTodayWithOffset().unixTime
 
         @JvmStatic
         fun millisecondsUntilTomorrowWithOffset(): Long = getStartOfTomorrowWithOffset() - applyTimezone(getLocalTime())
@@ -247,8 +243,7 @@ abstract class DateUtils {
 
         @JvmStatic
         fun setStartDayOffset(hourOffset: Int, minuteOffset: Int) {
-            startDayHourOffset = hourOffset
-            startDayMinuteOffset = minuteOffset
+            clock.setStartDayOffset(hourOffset, minuteOffset)
         }
 
         private fun getLocale(): Locale {
@@ -270,43 +265,26 @@ abstract class DateUtils {
             )
         }
 
+        /**
+         * Returns the given timestamp, moved back to the first day of the day, week, month,
+         * quarter or year that contains it. The time of the day is preserved. Dates are
+         * computed in GMT with [EpochDays], without allocating any calendars.
+         */
         @JvmStatic
         fun truncate(
             field: TruncateField,
             timestamp: Long,
             firstWeekday: Int
         ): Long {
-            val cal = getCalendar(timestamp)
-
-            return when (field) {
-                TruncateField.DAY -> { cal.timeInMillis }
-
-                TruncateField.MONTH -> {
-                    cal.set(DAY_OF_MONTH, 1)
-                    cal.timeInMillis
-                }
-
-                TruncateField.WEEK_NUMBER -> {
-                    val weekDay = cal.get(DAY_OF_WEEK)
-                    var delta = weekDay - firstWeekday
-                    if (delta < 0) { delta += 7 }
-                    cal.add(Calendar.DAY_OF_YEAR, -delta)
-                    cal.timeInMillis
-                }
-
-                TruncateField.QUARTER -> {
-                    val quarter = cal.get(Calendar.MONTH) / 3
-                    cal.set(DAY_OF_MONTH, 1)
-                    cal.set(Calendar.MONTH, quarter * 3)
-                    cal.timeInMillis
-                }
-
-                TruncateField.YEAR -> {
-                    cal.set(Calendar.MONTH, Calendar.JANUARY)
-                    cal.set(DAY_OF_MONTH, 1)
-                    cal.timeInMillis
-                }
+            val day = Math.floorDiv(timestamp, DAY_LENGTH)
+            val truncatedDay = when (field) {
+                TruncateField.DAY -> day
+                TruncateField.MONTH -> EpochDays.startOfMonth(day)
+                TruncateField.WEEK_NUMBER -> EpochDays.startOfWeek(day, firstWeekday)
+                TruncateField.QUARTER -> EpochDays.startOfQuarter(day)
+                TruncateField.YEAR -> EpochDays.startOfYear(day)
             }
+            return timestamp - (day - truncatedDay) * DAY_LENGTH
         }
 
         @JvmStatic
@@ -327,14 +305,18 @@ abstract class DateUtils {
             return applyTimezone(time)
         }
 
+        /**
+         * Makes [clock] always return the given local time, or, if null, the actual time again.
+         */
         @JvmStatic
         fun setFixedLocalTime(newFixedLocalTime: Long?) {
-            this.fixedLocalTime = newFixedLocalTime
+            clock.setFixedLocalTime(newFixedLocalTime)
         }
 
         @JvmStatic
         fun setFixedTimeZone(newTimeZone: TimeZone?) {
             this.fixedTimeZone = newTimeZone
+            clock.invalidate()
         }
 
         @JvmStatic
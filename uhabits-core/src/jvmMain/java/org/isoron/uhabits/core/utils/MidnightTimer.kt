@@ -30,7 +30,10 @@ import javax.inject.Inject
  * A class that emits events when a new day starts.
  */
 @AppScope
-open class MidnightTimer @Inject constructor(logging: Logging) {
+open class MidnightTimer @Inject constructor(
+    logging: Logging,
+    private val clock: Clock = DateUtils.clock
+) {
     private val listeners: MutableList<MidnightListener> = LinkedList()
     private lateinit var executor: ScheduledExecutorService
     private val logger = logging.getLogger("MidnightTimer")
@@ -51,6 +54,7 @@ open class MidnightTimer @Inject constructor(logging: Logging) {
         delayOffsetInMillis: Long = DateUtils.SECOND_LENGTH,
         testExecutor: ScheduledExecutorService? = null
     ) {
+        clock.invalidate()
         executor = testExecutor ?: Executors.newSingleThreadScheduledExecutor()
         val initialDelay = DateUtils.millisecondsUntilTomorrowWithOffset() + delayOffsetInMillis
         logger.info("Scheduling refresh for $initialDelay ms from now")
@@ -68,6 +72,7 @@ open class MidnightTimer @Inject constructor(logging: Logging) {
     @Synchronized
     private fun notifyListeners() {
         logger.info("Midnight refresh")
+        clock.invalidate()
         for (l in listeners) {
             l.atMidnight()
         }
@@ -0,0 +1 @@
+create table DerivedData ( id integer primary key autoincrement, habit integer not null unique, version integer not null, hash integer not null, scores text not null, streaks text not null );
@@ -19,9 +19,14 @@
 
 package org.isoron.platform.gui
 
+import org.isoron.platform.time.DayOfWeek
 import org.isoron.platform.time.LocalDate
 import org.junit.Assert.assertEquals
+import org.junit.Assert.assertSame
 import org.junit.Test
+import java.util.Calendar
+import java.util.GregorianCalendar
+import java.util.TimeZone
 
 class DatesTest {
     @Test
@@ -31,4 +36,40 @@ class DatesTest {
         assertEquals(date.month, 12)
         assertEquals(date.year, 1999)
     }
+
+    @Test
+    fun testSameAsCalendar() {
+        val cal = GregorianCalendar(TimeZone.getTimeZone("GMT"))
+        cal.set(1970, Calendar.JANUARY, 1, 0, 0, 0)
+        cal.set(Calendar.MILLISECOND, 0)
+        var daysSince2000 = -10957
+        while (cal[Calendar.YEAR] <= 2100) {
+            val year = cal[Calendar.YEAR]
+            val month = cal[Calendar.MONTH] + 1
+            val day = cal[Calendar.DAY_OF_MONTH]
+            val date = LocalDate(daysSince2000)
+            assertEquals(year, date.year)
+            assertEquals(month, date.month)
+            assertEquals(day, date.day)
+            assertEquals(cal.getActualMaximum(Calendar.DAY_OF_MONTH), date.monthLength)
+            assertEquals(cal[Calendar.DAY_OF_WEEK] - 1, date.dayOfWeek.daysSinceSunday)
+            assertEquals(daysSince2000, LocalDate(year, month, day).daysSince2000)
+            cal.add(Calendar.DAY_OF_MONTH, 1)
+            daysSince2000++
+        }
+    }
+
+    @Test
+    fun testDayOfWeekBefore2000() {
+        assertEquals(DayOfWeek.FRIDAY, LocalDate(1999, 12, 31).dayOfWeek)
+        assertEquals(DayOfWeek.THURSDAY, LocalDate(1970, 1, 1).dayOfWeek)
+    }
+
+    @Test
+    fun testIntern() {
+        val date = LocalDate.of(8000)
+        assertSame(date, LocalDate.of(8000))
+        assertSame(date, date.plus(5).minus(5))
+        assertEquals(LocalDate(8001), LocalDate.of(8001))
+    }
 }
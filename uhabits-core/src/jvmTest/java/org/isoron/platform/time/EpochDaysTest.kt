@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2016-2025 Álinson Santos Xavier <git@axavier.org>
+ *
+ * This file is part of Loop Habit Tracker.
+ *
+ * Loop Habit Tracker is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Loop Habit Tracker is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.isoron.platform.time
+
+import org.isoron.uhabits.core.utils.DateUtils
+import org.isoron.uhabits.core.utils.DateUtils.TruncateField
+import org.junit.Assert.assertEquals
+import org.junit.Test
+import java.util.Calendar
+import java.util.GregorianCalendar
+import java.util.TimeZone
+
+class EpochDaysTest {
+    @Test
+    fun testKnownDates() {
+        assertEquals(0L, EpochDays.fromCivil(1970, 1, 1))
+        assertEquals(10957L, EpochDays.fromCivil(2000, 1, 1))
+        assertEquals(-1L, EpochDays.fromCivil(1969, 12, 31))
+        assertEquals(Calendar.THURSDAY, EpochDays.dayOfWeek(0))
+        assertEquals(Calendar.WEDNESDAY, EpochDays.dayOfWeek(-1))
+        assertEquals(29, EpochDays.dayOfMonth(EpochDays.fromCivil(2024, 2, 29)))
+        assertEquals(3, EpochDays.month(EpochDays.fromCivil(2100, 2, 29)))
+    }
+
+    /**
+     * Compares every day between 1970 and 2100 against the results of GregorianCalendar.
+     */
+    @Test
+    fun testSameAsCalendar() {
+        val cal = GregorianCalendar(TimeZone.getTimeZone("GMT"))
+        val from = EpochDays.fromCivil(1970, 1, 1)
+        val to = EpochDays.fromCivil(2100, 12, 31)
+        for (day in from..to) {
+            cal.timeInMillis = day * DateUtils.DAY_LENGTH
+            val year = cal[Calendar.YEAR]
+            val month = cal[Calendar.MONTH] + 1
+            assertEquals(year, EpochDays.year(day))
+            assertEquals(month, EpochDays.month(day))
+            assertEquals(cal[Calendar.DAY_OF_MONTH], EpochDays.dayOfMonth(day))
+            assertEquals(cal[Calendar.DAY_OF_WEEK], EpochDays.dayOfWeek(day))
+            val monthLength = cal.getActualMaximum(Calendar.DAY_OF_MONTH)
+            assertEquals(monthLength, EpochDays.monthLength(year, month))
+            assertEquals(day, EpochDays.fromCivil(year, month, cal[Calendar.DAY_OF_MONTH]))
+            for (field in TruncateField.values()) {
+                for (firstWeekday in Calendar.SUNDAY..Calendar.SATURDAY) {
+                    val timestamp = day * DateUtils.DAY_LENGTH
+                    assertEquals(
+                        truncateWithCalendar(field, timestamp, firstWeekday),
+                        DateUtils.truncate(field, timestamp, firstWeekday)
+                    )
+                }
+            }
+        }
+    }
+
+    private fun truncateWithCalendar(
+        field: TruncateField,
+        timestamp: Long,
+        firstWeekday: Int
+    ): Long {
+        val cal = GregorianCalendar(TimeZone.getTimeZone("GMT"))
+        cal.timeInMillis = timestamp
+        when (field) {
+            TruncateField.DAY -> {}
+            TruncateField.MONTH -> cal.set(Calendar.DAY_OF_MONTH, 1)
+            TruncateField.WEEK_NUMBER -> {
+                var delta = cal[Calendar.DAY_OF_WEEK] - firstWeekday
+                if (delta < 0) delta += 7
+                cal.add(Calendar.DAY_OF_YEAR, -delta)
+            }
+            TruncateField.QUARTER -> {
+                val quarter = cal[Calendar.MONTH] / 3
+                cal.set(Calendar.DAY_OF_MONTH, 1)
+                cal.set(Calendar.MONTH, quarter * 3)
+            }
+            TruncateField.YEAR -> {
+                cal.set(Calendar.MONTH, Calendar.JANUARY)
+                cal.set(Calendar.DAY_OF_MONTH, 1)
+            }
+        }
+        return cal.timeInMillis
+    }
+}
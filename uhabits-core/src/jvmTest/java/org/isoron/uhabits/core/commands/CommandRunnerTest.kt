@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2016-2025 Álinson Santos Xavier <git@axavier.org>
+ *
+ * This file is part of Loop Habit Tracker.
+ *
+ * Loop Habit Tracker is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Loop Habit Tracker is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.isoron.uhabits.core.commands
+
+import org.hamcrest.MatcherAssert.assertThat
+import org.hamcrest.core.IsEqual.equalTo
+import org.isoron.uhabits.core.BaseUnitTest
+import org.isoron.uhabits.core.models.Entry
+import org.isoron.uhabits.core.models.Habit
+import org.isoron.uhabits.core.models.ModelFactory
+import org.isoron.uhabits.core.models.Timestamp
+import org.isoron.uhabits.core.tasks.Task
+import org.isoron.uhabits.core.tasks.TaskRunner
+import org.isoron.uhabits.core.utils.DateUtils.Companion.getToday
+import org.junit.Before
+import org.junit.Test
+import org.junit.jupiter.api.Assertions.assertThrows
+import java.util.LinkedList
+
+class CommandRunnerTest : BaseUnitTest() {
+    private lateinit var habit: Habit
+    private lateinit var today: Timestamp
+    private lateinit var runner: CommandRunner
+    private val tasks = LinkedList<Task>()
+    private val batches = ArrayList<List<Command>>()
+
+    @Before
+    @Throws(Exception::class)
+    override fun setUp() {
+        super.setUp()
+        habit = fixtures.createEmptyHabit()
+        habitList.add(habit)
+        today = getToday()
+        runner = CommandRunner(QueueTaskRunner(), modelFactory)
+        runner.addListener(
+            object : CommandRunner.Listener {
+                override fun onCommandFinished(command: Command) {
+                    throw AssertionError("batches should be reported together")
+                }
+
+                override fun onCommandsFinished(commands: List<Command>) {
+                    batches.add(commands)
+                }
+            }
+        )
+    }
+
+    @Test
+    fun testRun_coalescesCommands() {
+        val c1 = CreateRepetitionCommand(habitList, habit, today, Entry.YES_MANUAL, "")
+        val c2 = CreateRepetitionCommand(habitList, habit, today.minus(1), Entry.YES_MANUAL, "")
+        runner.run(c1)
+        runner.run(c2)
+        assertThat(tasks.size, equalTo(1))
+        runPendingTasks()
+        assertThat(batches, equalTo(listOf(listOf<Command>(c1, c2))))
+        assertThat(habit.computedEntries.get(today).value, equalTo(Entry.YES_MANUAL))
+        assertThat(habit.computedEntries.get(today.minus(1)).value, equalTo(Entry.YES_MANUAL))
+    }
+
+    @Test
+    fun testRun_whileBatchIsRunning() {
+        val c1 = CreateRepetitionCommand(habitList, habit, today, Entry.YES_MANUAL, "")
+        val c2 = CreateRepetitionCommand(habitList, habit, today, Entry.NO, "")
+        runner.run(c1)
+        val task = tasks.removeFirst()
+        task.doInBackground()
+        runner.run(c2)
+        assertThat(tasks.size, equalTo(1))
+        task.onPostExecute()
+        runPendingTasks()
+        assertThat(batches, equalTo(listOf(listOf<Command>(c1), listOf<Command>(c2))))
+        assertThat(habit.computedEntries.get(today).value, equalTo(Entry.NO))
+    }
+
+    @Test
+    fun testRun_afterCommandThrows() {
+        val failing = object : Command {
+            override fun run() {
+                throw IllegalStateException()
+            }
+        }
+        val c1 = CreateRepetitionCommand(habitList, habit, today, Entry.YES_MANUAL, "")
+        runner.run(failing)
+        val task = tasks.removeFirst()
+        assertThrows(IllegalStateException::class.java) { task.doInBackground() }
+        runner.run(c1)
+        assertThat(tasks.size, equalTo(1))
+        runPendingTasks()
+        assertThat(batches, equalTo(listOf(listOf<Command>(c1))))
+        assertThat(habit.computedEntries.get(today).value, equalTo(Entry.YES_MANUAL))
+    }
+
+    @Test
+    fun testRun_doesNotRecomputeDeletedHabits() {
+        habit.recompute()
+        runner.run(CreateRepetitionCommand(habitList, habit, today, Entry.YES_MANUAL, ""))
+        runner.run(DeleteHabitsCommand(habitList, listOf(habit)))
+        runPendingTasks()
+        assertThat(habitList.indexOf(habit), equalTo(-1))
+        assertThat(habit.computedEntries.get(today).value, equalTo(Entry.UNKNOWN))
+    }
+
+    @Test
+    fun testRun_recomputesOutsideTransaction() {
+        var isInTransaction = false
+        var transactionCount = 0
+        val factory = object : ModelFactory by modelFactory {
+            override fun runInTransaction(block: () -> Unit) {
+                isInTransaction = true
+                try {
+                    block()
+                } finally {
+                    isInTransaction = false
+                }
+                transactionCount++
+            }
+        }
+        val isListChangedInTransaction = ArrayList<Boolean>()
+        habitList.observable.addListener { isListChangedInTransaction.add(isInTransaction) }
+
+        runner = CommandRunner(QueueTaskRunner(), factory)
+        runner.run(CreateRepetitionCommand(habitList, habit, today, Entry.YES_MANUAL, ""))
+        runner.run(CreateRepetitionCommand(habitList, habit, today.minus(1), Entry.NO, ""))
+        runner.run(ArchiveHabitsCommand(habitList, listOf(habit)))
+        runPendingTasks()
+
+        assertThat(transactionCount, equalTo(1))
+        assertThat(isListChangedInTransaction.isNotEmpty(), equalTo(true))
+        assertThat(isListChangedInTransaction.contains(true), equalTo(false))
+        assertThat(habit.computedEntries.get(today).value, equalTo(Entry.YES_MANUAL))
+    }
+
+    private fun runPendingTasks() {
+        while (tasks.isNotEmpty()) {
+            val task = tasks.removeFirst()
+            task.doInBackground()
+            task.onPostExecute()
+        }
+    }
+
+    private inner class QueueTaskRunner : TaskRunner {
+        override val activeTaskCount: Int
+            get() = tasks.size
+
+        override fun addListener(listener: TaskRunner.Listener) {}
+        override fun removeListener(listener: TaskRunner.Listener) {}
+        override fun execute(task: Task) {
+            tasks.add(task)
+        }
+
+        override fun publishProgress(task: Task, progress: Int) {}
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2016-2025 Álinson Santos Xavier <git@axavier.org>
+ *
+ * This file is part of Loop Habit Tracker.
+ *
+ * Loop Habit Tracker is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Loop Habit Tracker is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.isoron.uhabits.core.database
+
+import org.hamcrest.MatcherAssert.assertThat
+import org.hamcrest.core.IsEqual.equalTo
+import org.junit.Before
+import org.junit.Test
+import java.sql.DriverManager
+
+class JdbcDatabaseTest {
+    private lateinit var db: JdbcDatabase
+
+    @Before
+    fun setUp() {
+        db = JdbcDatabase(DriverManager.getConnection("jdbc:sqlite::memory:"))
+        db.execute("create table tests(id integer primary key autoincrement, value integer)")
+    }
+
+    @Test
+    fun testRepeatedStatements() {
+        for (i in 1..100) {
+            val id = db.insert("tests", mapOf("value" to i))
+            assertThat(id, equalTo(i.toLong()))
+        }
+        for (i in 1..100) {
+            db.query("select value from tests where id = ?", i.toString()).use { c ->
+                assertThat(c.moveToNext(), equalTo(true))
+                assertThat(c.getInt(0), equalTo(i))
+            }
+        }
+        db.update("tests", mapOf("value" to 0), "id > ?", "50")
+        assertThat(count("value = 0"), equalTo(50))
+    }
+
+    @Test
+    fun testInsertBatch() {
+        val rows = (1..1000).map { arrayOf<Any?>(it) }
+        db.insertBatch("tests", arrayOf("value"), rows)
+        assertThat(count("value > 0"), equalTo(1000))
+
+        // Inside a transaction started by the caller, rows should only be stored on commit
+        db.beginTransaction()
+        db.insertBatch("tests", arrayOf("value"), rows)
+        db.endTransaction()
+        assertThat(count("value > 0"), equalTo(1000))
+    }
+
+    @Test
+    fun testNestedTransactions() {
+        db.beginTransaction()
+        db.beginTransaction()
+        db.insert("tests", mapOf("value" to 1))
+        db.setTransactionSuccessful()
+        db.endTransaction()
+        db.setTransactionSuccessful()
+        db.endTransaction()
+        assertThat(count("value > 0"), equalTo(1))
+
+        // If an inner transaction fails, the entire transaction should be rolled back
+        db.beginTransaction()
+        db.insert("tests", mapOf("value" to 2))
+        db.beginTransaction()
+        db.endTransaction()
+        db.setTransactionSuccessful()
+        db.endTransaction()
+        assertThat(count("value > 0"), equalTo(1))
+    }
+
+    @Test
+    fun testNestedQueries() {
+        for (i in 1..3) db.insert("tests", mapOf("value" to i))
+        val query = "select value from tests order by id"
+        db.query(query).use { outer ->
+            var outerCount = 0
+            while (outer.moveToNext()) {
+                outerCount++
+                db.query(query).use { inner ->
+                    var innerCount = 0
+                    while (inner.moveToNext()) innerCount++
+                    assertThat(innerCount, equalTo(3))
+                }
+            }
+            assertThat(outerCount, equalTo(3))
+        }
+    }
+
+    @Test
+    fun testEviction() {
+        for (i in 1..3 * JdbcDatabase.STATEMENT_CACHE_SIZE) {
+            db.execute("insert into tests(value) values ($i)")
+        }
+        assertThat(count("value > 0"), equalTo(3 * JdbcDatabase.STATEMENT_CACHE_SIZE))
+        db.close()
+    }
+
+    private fun count(where: String): Int {
+        db.query("select count(*) from tests where $where").use { c ->
+            c.moveToNext()
+            return c.getInt(0)!!
+        }
+    }
+}
@@ -111,6 +111,26 @@ class RepositoryTest : BaseUnitTest() {
         assertThat(r2.id, equalTo(2L))
     }
 
+    @Test
+    @Throws(Exception::class)
+    fun testSaveAll() {
+        val records = (1..100).map { i ->
+            ThingRecord().apply {
+                color = i
+                name = "thing $i"
+                score = i / 2.0
+            }
+        }
+        repository.saveAll(records)
+        val retrieved = repository.findAll("order by id")
+        assertThat(retrieved.size, equalTo(100))
+        for (i in 0 until 100) {
+            assertThat(retrieved[i].color, equalTo(records[i].color))
+            assertThat(retrieved[i].name, equalTo(records[i].name))
+            assertThat(retrieved[i].score, equalTo(records[i].score))
+        }
+    }
+
     @Test
     @Throws(Exception::class)
     fun testRemove() {
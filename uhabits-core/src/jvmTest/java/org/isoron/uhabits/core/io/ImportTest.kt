@@ -121,6 +121,9 @@ class ImportTest : BaseUnitTest() {
         val habit = habitList.getByPosition(0)
         assertThat(habit.name, equalTo("Wake up early"))
         assertThat(habit.frequency, equalTo(Frequency.THREE_TIMES_PER_WEEK))
+
+        // Imported habits are only recomputed when first needed
+        assertTrue(habit.isStale)
         assertTrue(isChecked(habit, 2016, 3, 14))
         assertTrue(isChecked(habit, 2016, 3, 16))
         assertFalse(isChecked(habit, 2016, 3, 17))
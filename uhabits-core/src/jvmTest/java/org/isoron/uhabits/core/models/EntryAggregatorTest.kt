@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2016-2025 Álinson Santos Xavier <git@axavier.org>
+ *
+ * This file is part of Loop Habit Tracker.
+ *
+ * Loop Habit Tracker is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Loop Habit Tracker is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.isoron.uhabits.core.models
+
+import org.hamcrest.MatcherAssert.assertThat
+import org.hamcrest.core.IsEqual.equalTo
+import org.isoron.uhabits.core.models.Entry.Companion.NO
+import org.isoron.uhabits.core.models.Entry.Companion.SKIP
+import org.isoron.uhabits.core.models.Entry.Companion.UNKNOWN
+import org.isoron.uhabits.core.models.Entry.Companion.YES_AUTO
+import org.isoron.uhabits.core.models.Entry.Companion.YES_MANUAL
+import org.isoron.uhabits.core.utils.DateUtils.TruncateField
+import org.junit.Test
+import java.util.Calendar
+import java.util.Random
+
+class EntryAggregatorTest {
+    @Test
+    fun testNewest() {
+        val today = Timestamp.from(2024, Calendar.MARCH, 2)
+        val values = intArrayOf(YES_MANUAL, SKIP, YES_MANUAL, NO, YES_MANUAL, SKIP)
+        val aggregator = EntryAggregator(values, today, Calendar.SUNDAY, isNumerical = false)
+
+        // Days 2024-03-02 (Saturday) to 2024-02-26 (Monday); weeks start on Sunday
+        assertThat(aggregator.getNewestSum(TruncateField.DAY), equalTo(1000))
+        assertThat(aggregator.getNewestSum(TruncateField.WEEK_NUMBER), equalTo(3000))
+        assertThat(aggregator.getNewestSkippedDays(TruncateField.WEEK_NUMBER), equalTo(2))
+        assertThat(aggregator.getNewestSum(TruncateField.MONTH), equalTo(1000))
+        assertThat(aggregator.getNewestSkippedDays(TruncateField.MONTH), equalTo(1))
+        assertThat(aggregator.getNewestSum(TruncateField.QUARTER), equalTo(3000))
+        assertThat(aggregator.getNewestSkippedDays(TruncateField.YEAR), equalTo(2))
+        assertThat(
+            aggregator.getSums(TruncateField.MONTH),
+            equalTo(
+                listOf(
+                    Entry(Timestamp.from(2024, Calendar.MARCH, 1), 1000),
+                    Entry(Timestamp.from(2024, Calendar.FEBRUARY, 1), 2000)
+                )
+            )
+        )
+    }
+
+    @Test
+    fun testEmpty() {
+        val today = Timestamp.from(2024, Calendar.MARCH, 2)
+        val aggregator = EntryAggregator(IntArray(0), today, Calendar.SUNDAY, isNumerical = true)
+        assertThat(aggregator.getNewestSum(TruncateField.YEAR), equalTo(0))
+        assertThat(aggregator.getSums(TruncateField.DAY), equalTo(listOf()))
+    }
+
+    @Test
+    fun testSameAsGroupedSum() {
+        val random = Random(0)
+        val booleanValues = intArrayOf(YES_MANUAL, YES_AUTO, NO, SKIP, UNKNOWN)
+        for (i in 0 until 40) {
+            val isNumerical = i % 2 == 0
+            val to = Timestamp.from(1995 + random.nextInt(40), random.nextInt(12), 1)
+                .plus(random.nextInt(31))
+            val values = IntArray(random.nextInt(1500)) {
+                if (isNumerical) {
+                    if (random.nextInt(5) == 0) SKIP else random.nextInt(3000) - 100
+                } else {
+                    booleanValues[random.nextInt(booleanValues.size)]
+                }
+            }
+            val entries = values.indices.map { Entry(to.minus(it), values[it]) }
+            for (firstWeekday in Calendar.SUNDAY..Calendar.SATURDAY) {
+                val aggregator = EntryAggregator(values, to, firstWeekday, isNumerical)
+                for (field in TruncateField.values()) {
+                    assertThat(
+                        aggregator.getSums(field),
+                        equalTo(entries.groupedSum(field, firstWeekday, isNumerical))
+                    )
+                    assertThat(
+                        aggregator.getSkippedDays(field),
+                        equalTo(entries.countSkippedDays(field, firstWeekday))
+                    )
+                }
+            }
+        }
+    }
+}
@@ -22,6 +22,7 @@ package org.isoron.uhabits.core.models
 import org.hamcrest.MatcherAssert.assertThat
 import org.hamcrest.core.IsEqual.equalTo
 import org.isoron.uhabits.core.models.Entry.Companion.NO
+import org.isoron.uhabits.core.models.Entry.Companion.SKIP
 import org.isoron.uhabits.core.models.Entry.Companion.UNKNOWN
 import org.isoron.uhabits.core.models.Entry.Companion.YES_AUTO
 import org.isoron.uhabits.core.models.Entry.Companion.YES_MANUAL
@@ -30,6 +31,7 @@ import org.junit.Test
 import java.util.Calendar
 import java.util.Random
 import kotlin.test.assertEquals
+import kotlin.test.assertNull
 
 class EntryListTest {
     @Test
@@ -37,6 +39,7 @@ class EntryListTest {
         val entries = EntryList()
         val today = DateUtils.getToday()
 
+        assertNull(entries.getOldestKnown())
         assertEquals(Entry(today.minus(0), UNKNOWN), entries.get(today.minus(0)))
         assertEquals(Entry(today.minus(2), UNKNOWN), entries.get(today.minus(2)))
         assertEquals(Entry(today.minus(5), UNKNOWN), entries.get(today.minus(5)))
@@ -54,6 +57,7 @@ class EntryListTest {
         assertEquals(Entry(today.minus(0), 15), known[0])
         assertEquals(Entry(today.minus(5), 20), known[1])
         assertEquals(Entry(today.minus(8), 30), known[2])
+        assertEquals(today.minus(8), entries.getOldestKnown())
 
         val actual = entries.getByInterval(today.minus(5), today)
         assertEquals(6, actual.size)
@@ -65,6 +69,62 @@ class EntryListTest {
         assertEquals(Entry(today.minus(5), 20), actual[5])
     }
 
+    @Test
+    fun testRandomAccess() {
+        val today = DateUtils.getToday()
+        val random = Random(42L)
+        val entries = EntryList()
+        val expected = HashMap<Timestamp, Entry>()
+        val notes = arrayOf("", "", "", "Sick", "Vacation")
+        for (i in 0 until 1000) {
+            val timestamp = today.minus(random.nextInt(2000))
+            val entry = Entry(timestamp, random.nextInt(5) - 1, notes[random.nextInt(notes.size)])
+            entries.add(entry)
+            expected[timestamp] = entry
+        }
+
+        val known = entries.getKnown()
+        assertEquals(expected.values.sortedByDescending { it.timestamp }, known)
+        assertEquals(known.last().timestamp, entries.getOldestKnown())
+
+        val from = today.minus(2100)
+        val to = today.plus(100)
+        val byInterval = entries.getByInterval(from, to)
+        val values = entries.getValuesByInterval(from, to)
+        assertEquals(from.daysUntil(to) + 1, byInterval.size)
+        assertEquals(byInterval.size, values.size)
+        for (i in byInterval.indices) {
+            val timestamp = to.minus(i)
+            val entry = expected[timestamp] ?: Entry(timestamp, UNKNOWN)
+            assertEquals(entry, byInterval[i])
+            assertEquals(entry, entries.get(timestamp))
+            assertEquals(entry.value, values[i])
+        }
+
+        entries.clear()
+        assertEquals(listOf(), entries.getKnown())
+        assertNull(entries.getOldestKnown())
+        assertEquals(Entry(today, UNKNOWN), entries.get(today))
+    }
+
+    @Test
+    fun testAddAll() {
+        val today = DateUtils.getToday()
+        val entries = EntryList()
+        entries.add(Entry(today, 5))
+        entries.addAll(
+            listOf(
+                Entry(today.minus(3), YES_MANUAL),
+                Entry(today, NO),
+                Entry(today.minus(3), 10, "Replaced")
+            )
+        )
+        assertEquals(
+            listOf(Entry(today, NO), Entry(today.minus(3), 10, "Replaced")),
+            entries.getKnown()
+        )
+    }
+
     @Test
     fun testComputeBoolean() {
         val today = DateUtils.getToday()
@@ -95,6 +155,97 @@ class EntryListTest {
         assertEquals(listOf(), computed.getKnown())
     }
 
+    @Test
+    fun testComputeBoolean_randomized() {
+        val today = DateUtils.getToday()
+        val random = Random(0)
+        val frequencies = listOf(
+            Frequency.DAILY,
+            Frequency(1, 3),
+            Frequency(3, 7),
+            Frequency(2, 14),
+            Frequency(10, 30),
+            Frequency(1, 31)
+        )
+        val values = intArrayOf(YES_MANUAL, YES_MANUAL, YES_MANUAL, NO, SKIP, YES_AUTO, UNKNOWN)
+        for (i in 0 until 200) {
+            val frequency = frequencies[i % frequencies.size]
+            val original = EntryList()
+            for (day in 0 until random.nextInt(400)) {
+                if (random.nextInt(3) == 0) continue
+                val notes = if (random.nextInt(10) == 0) "note $day" else ""
+                original.add(Entry(today.minus(day), values[random.nextInt(values.size)], notes))
+            }
+
+            // Expected result, computed with the list-based functions
+            val known = original.getKnown()
+            val intervals = EntryList.buildIntervals(frequency, known)
+            EntryList.snapIntervalsTogether(intervals)
+            val expected = EntryList.buildEntriesFromInterval(known, intervals)
+                .filter { it.value != UNKNOWN || it.notes.isNotEmpty() }
+
+            val computed = EntryList()
+            computed.recomputeFrom(original, frequency, isNumerical = false)
+            assertEquals(expected, computed.getKnown())
+            for (entry in expected) assertEquals(entry, computed.get(entry.timestamp))
+        }
+    }
+
+    @Test
+    fun testComputeBoolean_changedDay() {
+        val today = DateUtils.getToday()
+        val random = Random(0)
+        val frequencies = listOf(
+            Frequency.DAILY,
+            Frequency(1, 3),
+            Frequency(3, 7),
+            Frequency(2, 14),
+            Frequency(10, 30),
+            Frequency(1, 31)
+        )
+        val values = intArrayOf(YES_MANUAL, YES_MANUAL, NO, SKIP, UNKNOWN)
+        for (frequency in frequencies) {
+            val original = EntryList()
+            for (day in 0 until 200) {
+                if (random.nextInt(2) == 0) original.add(Entry(today.minus(day), YES_MANUAL))
+            }
+            val computed = EntryList()
+            computed.recomputeFrom(original, frequency, isNumerical = false)
+            for (i in 0 until 300) {
+                val timestamp = today.minus(random.nextInt(260) - 30)
+                val notes = if (random.nextInt(10) == 0) "note $i" else ""
+                original.add(Entry(timestamp, values[random.nextInt(values.size)], notes))
+                computed.recomputeFrom(original, frequency, false, changedDay = timestamp)
+
+                val expected = EntryList()
+                expected.recomputeFrom(original, frequency, isNumerical = false)
+                assertEquals(expected.getKnown(), computed.getKnown())
+            }
+        }
+    }
+
+    @Test
+    fun testComputeNumerical_changedDay() {
+        val today = DateUtils.getToday()
+        val original = EntryList()
+        original.add(Entry(today.minus(4), 100))
+        original.add(Entry(today.minus(9), 200))
+
+        val computed = EntryList()
+        computed.recomputeFrom(original, Frequency.DAILY, isNumerical = true)
+        original.add(Entry(today.minus(9), 300, "note"))
+        computed.recomputeFrom(original, Frequency.DAILY, true, changedDay = today.minus(9))
+        original.add(Entry(today.minus(40), 400))
+        computed.recomputeFrom(original, Frequency.DAILY, true, changedDay = today.minus(40))
+
+        val expected = listOf(
+            Entry(today.minus(4), 100),
+            Entry(today.minus(9), 300, "note"),
+            Entry(today.minus(40), 400)
+        )
+        assertEquals(expected, computed.getKnown())
+    }
+
     @Test
     fun testComputeNumerical() {
         val today = DateUtils.getToday()
@@ -381,5 +532,69 @@ class EntryListTest {
         }
     }
 
+    @Test
+    fun testWeekdayFrequency_incremental() {
+        val random = Random(123L)
+        val today = DateUtils.getToday()
+        val values = intArrayOf(YES_MANUAL, YES_MANUAL, NO, SKIP, UNKNOWN, 5000)
+        for (isNumerical in listOf(false, true)) {
+            val entries = EntryList()
+            val expected = EntryList()
+            var previous = entries.getWeekdayFrequency(isNumerical)
+            var previousMap = previous.toHashMap()
+            for (i in 0 until 500) {
+                val timestamp = today.minus(random.nextInt(1000))
+                val value = values[random.nextInt(values.size)]
+                val notes = if (random.nextInt(10) == 0) "note" else ""
+                if (random.nextInt(50) == 0) {
+                    entries.clear()
+                    expected.clear()
+                }
+                entries.add(Entry(timestamp, value, notes))
+                expected.add(Entry(timestamp, value, notes))
+
+                // Previous views should not change
+                assertMapEquals(previousMap, previous.toHashMap())
+
+                val actual = entries.getWeekdayFrequency(isNumerical)
+                val actualMap = actual.toHashMap()
+                assertMapEquals(buildWeekdayFrequency(expected.getKnown(), isNumerical), actualMap)
+                val month = timestamp.minus(random.nextInt(60))
+                val counts = actualMap[startOfMonth(month)]
+                assertThat(month in actual, equalTo(counts != null))
+                assertThat(actual[month, month.weekday], equalTo(counts?.get(month.weekday) ?: 0))
+                previous = actual
+                previousMap = actualMap
+            }
+        }
+    }
+
+    private fun buildWeekdayFrequency(
+        entries: List<Entry>,
+        isNumerical: Boolean
+    ): HashMap<Timestamp, Array<Int>> {
+        val map = hashMapOf<Timestamp, Array<Int>>()
+        for ((timestamp, value) in entries) {
+            val list = map.getOrPut(startOfMonth(timestamp)) { Array(7) { 0 } }
+            if (isNumerical) {
+                list[timestamp.weekday] += value
+            } else if (value == YES_MANUAL) {
+                list[timestamp.weekday] += 1
+            }
+        }
+        return map
+    }
+
+    private fun startOfMonth(timestamp: Timestamp) =
+        DateUtils.truncate(DateUtils.TruncateField.MONTH, timestamp, Calendar.SATURDAY)
+
+    private fun assertMapEquals(
+        expected: Map<Timestamp, Array<Int>>,
+        actual: Map<Timestamp, Array<Int>>
+    ) {
+        assertThat(actual.keys, equalTo(expected.keys))
+        for ((key, value) in expected) assertThat(actual[key], equalTo(value))
+    }
+
     fun day(offset: Int) = DateUtils.getToday().minus(offset)
 }
@@ -22,6 +22,7 @@ import org.hamcrest.CoreMatchers.equalTo
 import org.hamcrest.CoreMatchers.not
 import org.hamcrest.MatcherAssert.assertThat
 import org.isoron.uhabits.core.BaseUnitTest
+import org.isoron.uhabits.core.utils.DateUtils.Companion.getTodayWithOffset
 import org.junit.Assert.assertThrows
 import org.junit.Test
 import java.io.IOException
@@ -86,6 +87,77 @@ class HabitListTest : BaseUnitTest() {
         assertNull(habitList.getById(100L))
     }
 
+    @Test
+    fun testGetByUUID() {
+        for (h in habitsArray) assertThat(habitList.getByUUID(h.uuid), equalTo(h))
+        assertNull(habitList.getByUUID("does-not-exist"))
+        assertThat(activeHabits.getByUUID(habitsArray[2].uuid), equalTo(habitsArray[2]))
+        assertNull(activeHabits.getByUUID(habitsArray[0].uuid))
+    }
+
+    @Test
+    fun testIndexes_afterRemove() {
+        val removed = habitsArray[3]
+        habitList.remove(removed)
+        assertNull(habitList.getById(removed.id!!))
+        assertNull(habitList.getByUUID(removed.uuid))
+        assertThat(habitList.indexOf(removed), equalTo(-1))
+        for (h in habitsArray) {
+            if (h == removed) continue
+            assertThat(habitList.getByPosition(habitList.indexOf(h)), equalTo(h))
+            assertThat(habitList.getById(h.id!!), equalTo(h))
+        }
+    }
+
+    @Test
+    fun testFiltered_incrementalUpdates() {
+        val habit = habitsArray[2]
+        habit.isArchived = true
+        habitList.update(habit)
+        assertThat(activeHabits.size(), equalTo(5))
+        assertThat(activeHabits.indexOf(habit), equalTo(-1))
+        assertThat(reminderHabits.size(), equalTo(4))
+
+        habit.isArchived = false
+        habitList.resort(habit)
+        assertThat(activeHabits.size(), equalTo(6))
+        assertThat(activeHabits.getByPosition(0), equalTo(habit))
+
+        val added = fixtures.createEmptyHabit()
+        habitList.add(added)
+        assertThat(activeHabits.size(), equalTo(7))
+        assertThat(activeHabits.getByPosition(6), equalTo(added))
+
+        habitList.remove(habitsArray[3])
+        assertThat(activeHabits.size(), equalTo(6))
+        assertThat(reminderHabits.size(), equalTo(3))
+        assertThat(activeHabits.indexOf(habitsArray[3]), equalTo(-1))
+    }
+
+    @Test
+    fun testFiltered_batchUpdate() {
+        habitsArray[0].isArchived = false
+        habitsArray[5].isArchived = true
+        habitsArray[9].isArchived = true
+        habitList.update(listOf(habitsArray[0], habitsArray[5], habitsArray[9]))
+        val expected = habitsArray.filter { !it.isArchived }
+        assertThat(activeHabits.size(), equalTo(expected.size))
+        for ((position, h) in expected.withIndex()) {
+            assertThat(activeHabits.indexOf(h), equalTo(position))
+            assertThat(activeHabits.getById(h.id!!), equalTo(h))
+        }
+        assertNull(activeHabits.getById(habitsArray[5].id!!))
+        assertThat(activeHabits.indexOf(habitsArray[9]), equalTo(-1))
+    }
+
+    @Test
+    fun testFiltered_close() {
+        activeHabits.close()
+        habitList.add(fixtures.createEmptyHabit())
+        assertThat(activeHabits.size(), equalTo(6))
+        assertThat(reminderHabits.size(), equalTo(4))
+    }
+
     @Test
     fun testOrdering() {
         val h1 = fixtures.createEmptyHabit("A Habit", PaletteColor(2), 1)
@@ -138,6 +210,35 @@ class HabitListTest : BaseUnitTest() {
         assertThat(list.getByPosition(3), equalTo(h2))
     }
 
+    @Test
+    fun testOrdering_byStatus() {
+        val h1 = fixtures.createEmptyHabit("A Habit", PaletteColor(2), 0)
+        val h2 = fixtures.createEmptyHabit("B Habit", PaletteColor(2), 1)
+        val h3 = fixtures.createEmptyHabit("C Habit", PaletteColor(2), 2)
+        val list = modelFactory.buildHabitList().apply {
+            add(h1)
+            add(h2)
+            add(h3)
+        }
+        list.primaryOrder = HabitList.Order.BY_STATUS_DESC
+        list.secondaryOrder = HabitList.Order.BY_NAME_ASC
+        assertThat(list.getByPosition(0), equalTo(h1))
+
+        val today = getTodayWithOffset()
+        h3.originalEntries.add(Entry(today, Entry.YES_MANUAL))
+        h3.recompute()
+        list.resort(h3)
+        assertThat(list.getByPosition(0), equalTo(h3))
+        assertThat(list.getByPosition(1), equalTo(h1))
+        assertThat(list.getByPosition(2), equalTo(h2))
+        assertThat(list.indexOf(h3), equalTo(0))
+
+        list.primaryOrder = HabitList.Order.BY_STATUS_ASC
+        assertThat(list.getByPosition(0), equalTo(h1))
+        assertThat(list.getByPosition(1), equalTo(h2))
+        assertThat(list.getByPosition(2), equalTo(h3))
+    }
+
     @Test
     fun testReorder() {
         val operations =
@@ -232,6 +333,19 @@ class HabitListTest : BaseUnitTest() {
         assertThat(activeHabits.indexOf(h1), not(equalTo(-1)))
     }
 
+    @Test
+    fun testAdd_onSortedList() {
+        for ((i, h) in habitsArray.withIndex()) h.name = "Habit ${'$'}i"
+        habitList.primaryOrder = HabitList.Order.BY_NAME_ASC
+        val added = fixtures.createEmptyHabit()
+        added.name = "Habit 4b"
+        habitList.add(added)
+        assertThat(habitList.indexOf(added), equalTo(5))
+        assertThat(habitList.getById(added.id!!), equalTo(added))
+        assertThat(habitList.indexOf(habitsArray[5]), equalTo(6))
+        assertThat(activeHabits.indexOf(added), equalTo(2))
+    }
+
     @Test
     @Throws(Exception::class)
     fun testAdd_withFilteredList() {
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2016-2025 Álinson Santos Xavier <git@axavier.org>
+ *
+ * This file is part of Loop Habit Tracker.
+ *
+ * Loop Habit Tracker is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Loop Habit Tracker is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.isoron.uhabits.core.models
+
+import org.hamcrest.MatcherAssert.assertThat
+import org.hamcrest.core.IsEqual.equalTo
+import org.isoron.uhabits.core.BaseUnitTest
+import org.isoron.uhabits.core.utils.DateUtils.Companion.getToday
+import org.junit.Test
+import java.util.Random
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+class HabitRecomputeEngineTest : BaseUnitTest() {
+    private val today = getToday()
+
+    @Test
+    fun testRecompute() {
+        val expected = buildHabits()
+        for (h in expected) h.recompute()
+        val actual = buildHabits()
+        HabitRecomputeEngine(4).recompute(actual)
+        for ((a, e) in actual.zip(expected)) {
+            assertThat(a.computedEntries.getKnown(), equalTo(e.computedEntries.getKnown()))
+            assertThat(a.scores[today].value, equalTo(e.scores[today].value))
+            assertThat(a.streaks.getAll(), equalTo(e.streaks.getAll()))
+        }
+    }
+
+    @Test
+    fun testRecomputeIfStale() {
+        val habits = buildHabits()
+        for (h in habits) h.recompute()
+        habits[3].originalEntries.add(Entry(today, Entry.YES_MANUAL))
+        habits[3].invalidate()
+        HabitRecomputeEngine(4).recomputeIfStale(habits)
+        assertThat(habits[3].computedEntries.get(today).value, equalTo(Entry.YES_MANUAL))
+    }
+
+    @Test
+    fun testRecomputeIfStaleInBackground() {
+        val habits = buildHabits()
+        val done = CountDownLatch(1)
+        HabitRecomputeEngine(4).recomputeIfStaleInBackground(
+            { habits },
+            {
+                done.countDown()
+                emptyList()
+            }
+        )
+        assertThat(done.await(10, TimeUnit.SECONDS), equalTo(true))
+        for (h in habits) assertThat(h.isStale, equalTo(false))
+    }
+
+    private fun buildHabits(): List<Habit> {
+        val random = Random(0)
+        return (0 until HABIT_COUNT).map {
+            modelFactory.buildHabit().apply {
+                frequency = Frequency(1 + random.nextInt(3), 7)
+                for (day in 1 until 365) {
+                    if (random.nextInt(3) == 0) {
+                        originalEntries.add(Entry(today.minus(day), Entry.YES_MANUAL))
+                    }
+                }
+            }
+        }
+    }
+
+    companion object {
+        private const val HABIT_COUNT = 20
+    }
+}
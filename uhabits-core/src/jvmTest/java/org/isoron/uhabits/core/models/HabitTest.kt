@@ -116,6 +116,22 @@ class HabitTest : BaseUnitTest() {
         assertFalse(h.isCompletedToday())
     }
 
+    @Test
+    fun test_lazyRecompute() {
+        val h = modelFactory.buildHabit()
+        h.originalEntries.add(Entry(getToday(), Entry.YES_MANUAL))
+        assertTrue(h.isStale)
+        assertThat(h.computedEntries.get(getToday()).value, equalTo(Entry.YES_MANUAL))
+        assertFalse(h.isStale)
+
+        h.originalEntries.add(Entry(getToday(), Entry.NO))
+        h.invalidate()
+        assertTrue(h.isStale)
+        assertThat(h.scores[getToday()].value, equalTo(0.0))
+        assertFalse(h.isStale)
+        assertThat(h.computedEntries.get(getToday()).value, equalTo(Entry.NO))
+    }
+
     @Test
     @Throws(Exception::class)
     fun testURI() {
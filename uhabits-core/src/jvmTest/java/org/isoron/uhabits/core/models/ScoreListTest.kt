@@ -19,6 +19,8 @@
 package org.isoron.uhabits.core.models
 
 import org.hamcrest.MatcherAssert.assertThat
+import org.hamcrest.core.IsEqual.equalTo
+import org.hamcrest.core.IsNot.not
 import org.hamcrest.number.IsCloseTo
 import org.hamcrest.number.OrderingComparison
 import org.isoron.uhabits.core.BaseUnitTest
@@ -27,6 +29,7 @@ import org.isoron.uhabits.core.utils.DateUtils.Companion.getToday
 import org.junit.Before
 import org.junit.Test
 import java.util.ArrayList
+import kotlin.random.Random
 import kotlin.test.assertTrue
 
 open class BaseScoreListTest : BaseUnitTest() {
@@ -49,6 +52,31 @@ open class BaseScoreListTest : BaseUnitTest() {
         }
     }
 
+    /**
+     * Applies a sequence of random edits to [habit], recomputing it incrementally after each
+     * edit, and checks that its scores always match those of [reference], which receives the
+     * same edits but is fully recomputed every time.
+     */
+    protected fun checkIncrementalRecompute(reference: Habit, values: IntArray) {
+        val random = Random(42)
+        val from = today.minus(400)
+        val to = today.plus(30)
+        habit.recompute()
+        reference.recompute()
+        for (k in 0..199) {
+            val entry = Entry(today.minus(random.nextInt(365)), values[random.nextInt(values.size)])
+            habit.originalEntries.add(entry)
+            habit.recompute(changedFrom = entry.timestamp)
+            reference.originalEntries.add(entry)
+            reference.recompute()
+            val expected = reference.scores.getByInterval(from, to)
+            val actual = habit.scores.getByInterval(from, to)
+            for (i in expected.indices) {
+                assertThat(actual[i].value, IsCloseTo.closeTo(expected[i].value, E))
+            }
+        }
+    }
+
     companion object {
         const val E = 1e-6
     }
@@ -244,6 +272,79 @@ class YesNoScoreListTest : BaseScoreListTest() {
         assertThat(habit.scores[today].value, IsCloseTo.closeTo(0.0, E))
     }
 
+    @Test
+    fun test_getSliceByInterval() {
+        check(0, 20)
+        val from = today.minus(40)
+        val to = today.plus(40)
+        val expected = habit.scores.getByInterval(from, to)
+        val slice = habit.scores.getSliceByInterval(from, to)
+        assertThat(slice.size, equalTo(expected.size))
+        for (i in expected.indices) {
+            assertThat(slice.getTimestamp(i), equalTo(expected[i].timestamp))
+            assertThat(slice[i], IsCloseTo.closeTo(expected[i].value, E))
+            assertThat(habit.scores.getValue(expected[i].timestamp), equalTo(slice[i]))
+        }
+        assertTrue(habit.scores.getSliceByInterval(today, today.minus(1)).isEmpty())
+    }
+
+    @Test
+    fun test_getSliceByInterval_isNotModifiedByRecompute() {
+        check(0, 20)
+        val from = today.minus(40)
+        val slice = habit.scores.getSliceByInterval(from, today)
+        val expected = DoubleArray(slice.size) { slice[it] }
+        habit.originalEntries.add(Entry(today.minus(5), Entry.NO))
+        habit.recompute(changedFrom = today.minus(5))
+        assertThat(habit.scores[today].value, not(IsCloseTo.closeTo(expected[0], E)))
+        for (i in expected.indices) assertThat(slice[i], equalTo(expected[i]))
+    }
+
+    @Test
+    fun test_incrementalRecompute() {
+        habit.frequency = Frequency(3, 7)
+        val reference = fixtures.createEmptyHabit()
+        reference.frequency = Frequency(3, 7)
+        checkIncrementalRecompute(
+            reference,
+            intArrayOf(Entry.YES_MANUAL, Entry.NO, Entry.SKIP, Entry.UNKNOWN)
+        )
+    }
+
+    @Test
+    fun test_recomputeExtendedInterval() {
+        habit.frequency = Frequency(3, 7)
+        for (i in 0 until 60 step 2) check(i)
+        habit.recompute()
+        val from = today.minus(60)
+        val scores = ScoreList()
+        val expected = ScoreList()
+        for (list in listOf(scores, expected)) {
+            list.recompute(
+                frequency = habit.frequency,
+                isNumerical = false,
+                numericalHabitType = NumericalHabitType.AT_LEAST,
+                targetValue = 0.0,
+                computedEntries = habit.computedEntries,
+                from = from,
+                to = if (list === scores) today.minus(20) else today
+            )
+        }
+
+        // Scores should resume from the end of the previous interval
+        scores.recompute(
+            frequency = habit.frequency,
+            isNumerical = false,
+            numericalHabitType = NumericalHabitType.AT_LEAST,
+            targetValue = 0.0,
+            computedEntries = habit.computedEntries,
+            from = from,
+            to = today,
+            changedFrom = today.minus(5)
+        )
+        assertThat(scores.getByInterval(from, today), equalTo(expected.getByInterval(from, today)))
+    }
+
     private fun check(offset: Int) {
         val entries = habit.originalEntries
         entries.add(Entry(today.minus(offset), Entry.YES_MANUAL))
@@ -376,6 +477,14 @@ class NumericalAtLeastScoreListTest : NumericalScoreListTest() {
         assertThat(habit.scores[today].value, IsCloseTo.closeTo(0.25, E))
     }
 
+    @Test
+    fun test_incrementalRecompute() {
+        habit.frequency = Frequency(1, 2)
+        val reference = fixtures.createEmptyNumericalHabit(NumericalHabitType.AT_LEAST)
+        reference.frequency = Frequency(1, 2)
+        checkIncrementalRecompute(reference, intArrayOf(0, 500, 2000, 5000, SKIP))
+    }
+
     @Test
     fun overeachievingIsntRelevant() {
         addEntry(0, 10000000)
@@ -520,6 +629,14 @@ class NumericalAtMostScoreListTest : NumericalScoreListTest() {
         assertThat(habit.scores[today].value, IsCloseTo.closeTo(0.950773, E))
     }
 
+    @Test
+    fun test_incrementalRecompute() {
+        habit.frequency = Frequency(1, 2)
+        val reference = fixtures.createEmptyNumericalHabit(NumericalHabitType.AT_MOST)
+        reference.frequency = Frequency(1, 2)
+        checkIncrementalRecompute(reference, intArrayOf(0, 500, 2000, 5000, SKIP))
+    }
+
     @Test
     fun overeachievingIsntRelevant() {
         addEntry(0, 5000)
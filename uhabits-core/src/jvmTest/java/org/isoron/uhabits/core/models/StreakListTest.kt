@@ -23,6 +23,7 @@ import org.hamcrest.MatcherAssert.assertThat
 import org.isoron.uhabits.core.BaseUnitTest
 import org.isoron.uhabits.core.utils.DateUtils.Companion.getToday
 import org.junit.Test
+import java.util.Random
 
 class StreakListTest : BaseUnitTest() {
     private lateinit var habit: Habit
@@ -64,4 +65,34 @@ class StreakListTest : BaseUnitTest() {
         assertThat(best.size, equalTo(1))
         assertThat(best[0].length, equalTo(1))
     }
+
+    @Test
+    fun testRecompute_singleDayChanges() {
+        val random = Random(123L)
+        for (i in 0 until 500) {
+            val day = today.minus(random.nextInt(150) - 10)
+            val value = if (random.nextBoolean()) Entry.YES_MANUAL else Entry.NO
+            habit.originalEntries.add(Entry(day, value))
+            habit.recompute(changedFrom = day, isSingleDay = true)
+
+            val expected = StreakList()
+            expected.recompute(
+                habit.computedEntries,
+                habit.computedEntries.getKnown().last().timestamp,
+                today.plus(30),
+                isNumerical = false,
+                targetValue = 0.0,
+                targetType = NumericalHabitType.AT_LEAST
+            )
+            val all = expected.getAll()
+            assertThat(streaks.getAll(), equalTo(all))
+            for (limit in listOf(1, 5, 10, 50)) {
+                val best = all
+                    .sortedWith { s1, s2 -> s2.compareLonger(s1) }
+                    .take(limit)
+                    .sortedWith { s1, s2 -> s2.compareNewer(s1) }
+                assertThat(streaks.getBest(limit), equalTo(best))
+            }
+        }
+    }
 }
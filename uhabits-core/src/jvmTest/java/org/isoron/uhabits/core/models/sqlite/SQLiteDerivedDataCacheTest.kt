@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2016-2025 Álinson Santos Xavier <git@axavier.org>
+ *
+ * This file is part of Loop Habit Tracker.
+ *
+ * Loop Habit Tracker is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Loop Habit Tracker is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.isoron.uhabits.core.models.sqlite
+
+import org.isoron.uhabits.core.BaseUnitTest.Companion.buildMemoryDatabase
+import org.isoron.uhabits.core.database.Repository
+import org.isoron.uhabits.core.models.DerivedDataCache
+import org.isoron.uhabits.core.models.Entry
+import org.isoron.uhabits.core.models.Habit
+import org.isoron.uhabits.core.models.ScoreList
+import org.isoron.uhabits.core.models.Streak
+import org.isoron.uhabits.core.models.sqlite.records.DerivedDataRecord
+import org.isoron.uhabits.core.utils.DateUtils
+import org.junit.Before
+import org.junit.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+import kotlin.test.assertNotNull
+import kotlin.test.assertNull
+import kotlin.test.assertTrue
+
+class SQLiteDerivedDataCacheTest {
+
+    private val database = buildMemoryDatabase()
+    private val factory = SQLModelFactory(database)
+    private val habitList = factory.buildHabitList()
+    private val cache = SQLiteDerivedDataCache(database)
+    private val records = Repository(DerivedDataRecord::class.java, database)
+    private val today = DateUtils.getToday()
+    private lateinit var habit: Habit
+
+    @Before
+    fun setUp() {
+        habit = factory.buildHabit()
+        habitList.add(habit)
+    }
+
+    @Test
+    fun testSaveAndLoad() {
+        val snapshot = DerivedDataCache.Snapshot(
+            ScoreList.Snapshot(today.minus(2), doubleArrayOf(0.1, 0.2, 1.0 / 3)),
+            listOf(Streak(today.minus(2), today), Streak(today.minus(10), today.minus(5)))
+        )
+        cache.save(habit.id!!, 42L, snapshot, cache.getGeneration(habit.id!!))
+
+        val loaded = cache.load(habit.id!!, 42L)
+        assertNotNull(loaded)
+        assertEquals(snapshot.scores.from, loaded.scores.from)
+        assertEquals(snapshot.scores.values.toList(), loaded.scores.values.toList())
+        assertEquals(today, loaded.scores.to)
+        assertEquals(snapshot.streaks, loaded.streaks)
+
+        assertNull(cache.load(habit.id!!, 43L))
+        cache.invalidate(habit.id!!)
+        assertNull(cache.load(habit.id!!, 42L))
+    }
+
+    @Test
+    fun testSaveAfterInvalidate() {
+        val snapshot = DerivedDataCache.Snapshot(
+            ScoreList.Snapshot(today, doubleArrayOf(0.5)),
+            listOf()
+        )
+        val generation = cache.getGeneration(habit.id!!)
+        cache.invalidate(habit.id!!)
+
+        // The snapshot may have been computed before the invalidation, so it must be discarded
+        cache.save(habit.id!!, 42L, snapshot, generation)
+        assertNull(cache.load(habit.id!!, 42L))
+    }
+
+    @Test
+    fun testRestoreMatchesRecompute() {
+        for (offset in 0..100 step 3) {
+            habit.originalEntries.add(Entry(today.minus(offset), Entry.YES_MANUAL))
+        }
+        habit.recompute()
+        val expectedScores = habit.scores.getByInterval(today.minus(100), today)
+        val expectedStreaks = habit.streaks.getBest(10)
+
+        // A fresh copy of the habit should restore the same data from the cache
+        val copy = SQLModelFactory(database).buildHabitList().getById(habit.id!!)!!
+        assertEquals(expectedScores, copy.scores.getByInterval(today.minus(100), today))
+        assertEquals(expectedStreaks, copy.streaks.getBest(10))
+
+        // Changing the entries should cause the snapshot to be discarded
+        copy.originalEntries.add(Entry(today.minus(1), Entry.YES_MANUAL))
+        assertEquals(0, records.findAll("where habit = ?", habit.id.toString()).size)
+        copy.invalidate()
+        assertTrue(copy.scores.get(today).value > expectedScores[0].value)
+    }
+
+    @Test
+    fun testRestoreOnLaterDay() {
+        for (offset in 0..100 step 3) {
+            habit.originalEntries.add(Entry(today.minus(offset), Entry.YES_MANUAL))
+        }
+        habit.recompute()
+
+        // Forty days later, the snapshot should be extended to the new days, not discarded
+        val later = today.plus(40)
+        DateUtils.setFixedLocalTime(later.unixTime)
+        try {
+            val restored = SQLModelFactory(database).buildHabitList().getById(habit.id!!)!!
+            val restoredScores = restored.scores.getByInterval(today.minus(100), later)
+            val restoredStreaks = restored.streaks.getBest(10)
+            assertEquals(1, records.findAll("where habit = ?", habit.id.toString()).size)
+
+            SQLiteDerivedDataCache(database).invalidate(habit.id!!)
+            val computed = SQLModelFactory(database).buildHabitList().getById(habit.id!!)!!
+            assertEquals(computed.scores.getByInterval(today.minus(100), later), restoredScores)
+            assertEquals(computed.streaks.getBest(10), restoredStreaks)
+        } finally {
+            DateUtils.setFixedLocalTime(null)
+        }
+    }
+
+    @Test
+    fun testRestoreLoadsRecentEntriesOnly() {
+        for (offset in 0..1000 step 2) {
+            habit.originalEntries.add(Entry(today.minus(offset), Entry.YES_MANUAL))
+        }
+        habit.recompute()
+        val expectedScores = habit.scores.getByInterval(today.minus(1000), today)
+
+        // Restoring the snapshot should not require the entire history to be loaded
+        val copy = SQLModelFactory(database).buildHabitList().getById(habit.id!!)!!
+        assertEquals(expectedScores, copy.scores.getByInterval(today.minus(1000), today))
+        assertEquals(Entry.YES_MANUAL, copy.getRecentComputedEntries(today).get(today).value)
+        assertFalse((copy.originalEntries as SQLiteEntryList).isLoaded)
+
+        // Older entries should still be available when requested
+        assertEquals(habit.computedEntries.getKnown(), copy.computedEntries.getKnown())
+    }
+}
@@ -79,6 +79,35 @@ class SQLiteEntryListTest {
         )
     }
 
+    @Test
+    fun testLoadInterval() {
+        for (offset in listOf(0, 5, 300, 500)) {
+            repository.save(
+                EntryRecord().apply {
+                    habitId = entries.habitId
+                    timestamp = today.minus(offset).unixTime
+                    value = offset + 1
+                }
+            )
+        }
+        val recent = entries.getByInterval(today.minus(9), today)
+        assertEquals(10, recent.size)
+        assertEquals(Entry(today, 1), recent[0])
+        assertEquals(Entry(today.minus(5), 6), recent[5])
+
+        // The oldest entry should be found without loading the entire history
+        assertEquals(today.minus(500), entries.getOldestKnown())
+        assertEquals(false, entries.isLoaded)
+
+        // Older entries should be loaded on demand
+        assertEquals(Entry(today.minus(500), 501), entries.get(today.minus(500)))
+        assertEquals(Entry(today.minus(300), 301), entries.get(today.minus(300)))
+        assertEquals(
+            listOf(0, 5, 300, 500).map { Entry(today.minus(it), it + 1) },
+            entries.getKnown()
+        )
+    }
+
     @Test
     fun testAdd() {
         assertNull(getByTimestamp(1, today))
@@ -96,6 +125,42 @@ class SQLiteEntryListTest {
         assertEquals(replacement, retrieved2.toEntry())
     }
 
+    @Test
+    fun testAddReplacesInPlace() {
+        entries.add(Entry(today, 150))
+        val id = getByTimestamp(1, today)!!.id
+        entries.add(Entry(today, 90, "Updated"))
+        val retrieved = getByTimestamp(1, today)!!
+        assertEquals(id, retrieved.id)
+        assertEquals(Entry(today, 90, "Updated"), retrieved.toEntry())
+    }
+
+    @Test
+    fun testAddUnknown() {
+        entries.add(Entry(today, 150))
+        entries.add(Entry(today, UNKNOWN))
+        assertNull(getByTimestamp(1, today))
+
+        // Unknown entries with notes must still be stored
+        entries.add(Entry(today, UNKNOWN, "Sick"))
+        assertEquals(Entry(today, UNKNOWN, "Sick"), getByTimestamp(1, today)!!.toEntry())
+    }
+
+    @Test
+    fun testAddAll() {
+        entries.add(Entry(today, 150))
+        val added = (0..999).map { Entry(today.minus(it), it * 10, "note $it") }
+        entries.addAll(added + Entry(today.minus(5), 42))
+
+        for (entry in added) {
+            val replaced = entry.timestamp == today.minus(5)
+            val expected = if (replaced) Entry(today.minus(5), 42) else entry
+            assertEquals(expected, getByTimestamp(1, entry.timestamp)!!.toEntry())
+            assertEquals(expected, entries.get(entry.timestamp))
+        }
+        assertEquals(1000, repository.findAll("where habit = ?", "1").size)
+    }
+
     private fun getByTimestamp(habitId: Int, timestamp: Timestamp): EntryRecord? {
         return repository.findFirst(
             "where habit = ? and timestamp = ?",
@@ -21,6 +21,7 @@ package org.isoron.uhabits.core.models.sqlite.records
 import org.hamcrest.CoreMatchers.equalTo
 import org.hamcrest.MatcherAssert.assertThat
 import org.isoron.uhabits.core.BaseUnitTest
+import org.isoron.uhabits.core.database.Repository
 import org.isoron.uhabits.core.models.Entry
 import org.isoron.uhabits.core.models.Timestamp
 import org.junit.Test
@@ -34,4 +35,25 @@ class EntryRecordTest : BaseUnitTest() {
         record.copyFrom(check)
         assertThat(check, equalTo(record.toEntry()))
     }
+
+    @Test
+    fun testMapper() {
+        val db = buildMemoryDatabase()
+        val habitRecord = HabitRecord()
+        habitRecord.copyFrom(modelFactory.buildHabit())
+        Repository(HabitRecord::class.java, db).save(habitRecord)
+
+        val mapped = Repository(EntryRecord::class.java, db)
+        val reflective = Repository(EntryRecord::class.java, db, null)
+        val check = Entry(Timestamp.ZERO.plus(100), 50, "Hello")
+        val record = EntryRecord()
+        record.copyFrom(check)
+        record.habitId = habitRecord.id
+        mapped.save(record)
+
+        val loaded = reflective.find(record.id!!)!!
+        assertThat(loaded.habitId, equalTo(habitRecord.id))
+        assertThat(loaded.toEntry(), equalTo(check))
+        assertThat(mapped.find(record.id!!)!!.toEntry(), equalTo(check))
+    }
 }
@@ -21,6 +21,7 @@ package org.isoron.uhabits.core.models.sqlite.records
 import org.hamcrest.CoreMatchers.equalTo
 import org.hamcrest.MatcherAssert.assertThat
 import org.isoron.uhabits.core.BaseUnitTest
+import org.isoron.uhabits.core.database.Repository
 import org.isoron.uhabits.core.models.Frequency
 import org.isoron.uhabits.core.models.HabitType
 import org.isoron.uhabits.core.models.NumericalHabitType
@@ -71,4 +72,39 @@ class HabitRecordTest : BaseUnitTest() {
         record.copyTo(duplicate)
         assertThat(original, equalTo(duplicate))
     }
+
+    @Test
+    fun testMapper() {
+        val original = modelFactory.buildHabit().apply {
+            name = "Hello world"
+            question = "Did you greet the world today?"
+            color = PaletteColor(3)
+            frequency = Frequency.TWO_TIMES_PER_WEEK
+            reminder = Reminder(8, 30, WeekdayList.EVERY_DAY)
+            position = 5
+            type = HabitType.NUMERICAL
+            targetValue = 2.5
+            targetType = NumericalHabitType.AT_MOST
+            unit = "cups"
+        }
+        val db = buildMemoryDatabase()
+        val mapped = Repository(HabitRecord::class.java, db)
+        val reflective = Repository(HabitRecord::class.java, db, null)
+
+        // Records written by the mapper should be readable through reflection, and vice versa
+        val record = HabitRecord()
+        record.copyFrom(original)
+        mapped.save(record)
+        var duplicate = modelFactory.buildHabit()
+        reflective.find(record.id!!)!!.copyTo(duplicate)
+        original.id = record.id
+        assertThat(original, equalTo(duplicate))
+
+        record.id = null
+        reflective.save(record)
+        duplicate = modelFactory.buildHabit()
+        mapped.find(record.id!!)!!.copyTo(duplicate)
+        original.id = record.id
+        assertThat(original, equalTo(duplicate))
+    }
 }
@@ -23,7 +23,11 @@ import org.hamcrest.MatcherAssert.assertThat
 import org.isoron.uhabits.core.BaseUnitTest
 import org.isoron.uhabits.core.commands.CreateRepetitionCommand
 import org.isoron.uhabits.core.commands.DeleteHabitsCommand
+import org.isoron.uhabits.core.commands.EditHabitCommand
 import org.isoron.uhabits.core.models.Entry
+import org.isoron.uhabits.core.models.Frequency
+import org.isoron.uhabits.core.tasks.Task
+import org.isoron.uhabits.core.tasks.TaskRunner
 import org.isoron.uhabits.core.utils.DateUtils.Companion.getToday
 import org.junit.Test
 import org.mockito.kotlin.mock
@@ -76,6 +80,18 @@ class HabitCardListCacheTest : BaseUnitTest() {
         verifyNoMoreInteractions(listener)
     }
 
+    @Test
+    fun testCommandListener_edit() {
+        val h4 = habitList.getByPosition(4)
+        val modified = modelFactory.buildHabit()
+        modified.copyFrom(h4)
+        modified.frequency = Frequency(1, 7)
+        commandRunner.run(EditHabitCommand(habitList, h4.id!!, modified))
+        verify(listener).onItemChanged(4)
+        verify(listener).onRefreshFinished()
+        verifyNoMoreInteractions(listener)
+    }
+
     @Test
     fun testGet() {
         assertThat(cache.habitCount, equalTo(10))
@@ -145,6 +161,66 @@ class HabitCardListCacheTest : BaseUnitTest() {
         verifyNoMoreInteractions(listener)
     }
 
+    @Test
+    fun testRefreshHabits_supersededByFullRefresh() {
+        val runner = ManualTaskRunner()
+        val cache = HabitCardListCache(habitList, commandRunner, runner, mock())
+        cache.setCheckmarkCount(10)
+        cache.refreshAllHabits()
+        runner.runAll()
+
+        // The partial refresh computes its data, but it is only published after a newer
+        // full refresh has been started and completed
+        val h2 = habitList.getByPosition(2)
+        cache.refreshHabit(h2.id!!)
+        val partialTask = runner.tasks.removeFirst()
+        partialTask.doInBackground()
+        h2.originalEntries.add(Entry(today, Entry.SKIP))
+        h2.invalidate()
+        cache.refreshAllHabits()
+        runner.tasks.removeFirst().doInBackground()
+        runner.progress.removeLast().invoke()
+        runner.progress.removeLast().invoke()
+
+        val expectedCheckmarks = h2
+            .computedEntries
+            .getByInterval(today.minus(9), today)
+            .map { it.value }.toIntArray()
+        assertThat(partialTask.isCanceled(), equalTo(true))
+        assertThat(cache.getCheckmarks(h2.id!!), equalTo(expectedCheckmarks))
+    }
+
+    /**
+     * Task runner that only runs the tasks, and publishes their progress, when requested.
+     */
+    private class ManualTaskRunner : TaskRunner {
+        val tasks = ArrayDeque<Task>()
+        val progress = ArrayDeque<() -> Unit>()
+        override val activeTaskCount: Int
+            get() = tasks.size
+
+        override fun addListener(listener: TaskRunner.Listener) {}
+        override fun removeListener(listener: TaskRunner.Listener) {}
+
+        override fun execute(task: Task) {
+            task.onAttached(this)
+            tasks.add(task)
+        }
+
+        override fun publishProgress(task: Task, progress: Int) {
+            this.progress.add { task.onProgressUpdate(progress) }
+        }
+
+        fun runAll() {
+            while (tasks.isNotEmpty()) {
+                val task = tasks.removeFirst()
+                if (!task.isCanceled()) task.doInBackground()
+                while (progress.isNotEmpty()) progress.removeFirst().invoke()
+                task.onPostExecute()
+            }
+        }
+    }
+
     private fun removeHabitAt(position: Int) {
         val h = habitList.getByPosition(position)
         habitList.remove(h)
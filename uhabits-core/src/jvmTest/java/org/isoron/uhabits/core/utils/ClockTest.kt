@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2016-2025 Álinson Santos Xavier <git@axavier.org>
+ *
+ * This file is part of Loop Habit Tracker.
+ *
+ * Loop Habit Tracker is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Loop Habit Tracker is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.isoron.uhabits.core.utils
+
+import org.hamcrest.MatcherAssert.assertThat
+import org.hamcrest.core.IsEqual.equalTo
+import org.hamcrest.core.IsSame.sameInstance
+import org.isoron.uhabits.core.BaseUnitTest
+import org.isoron.uhabits.core.models.Timestamp
+import org.isoron.uhabits.core.utils.DateUtils.Companion.HOUR_LENGTH
+import org.isoron.uhabits.core.utils.DateUtils.Companion.setFixedTimeZone
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+import java.util.Calendar
+import java.util.TimeZone
+
+class ClockTest : BaseUnitTest() {
+    private lateinit var clock: TestClock
+
+    private class TestClock : Clock() {
+        var now = 0L
+        override fun currentTimeMillis() = now
+    }
+
+    @Before
+    @Throws(Exception::class)
+    override fun setUp() {
+        super.setUp()
+        clock = TestClock()
+    }
+
+    @After
+    @Throws(Exception::class)
+    override fun tearDown() {
+        setFixedTimeZone(null)
+        super.tearDown()
+    }
+
+    @Test
+    fun testGetToday_cached() {
+        setFixedTimeZone(TimeZone.getTimeZone("GMT"))
+        clock.now = unixTime(2017, Calendar.JANUARY, 1, 10, 0)
+        val today = clock.getToday()
+        assertThat(today, equalTo(timestamp(2017, Calendar.JANUARY, 1)))
+
+        clock.now = unixTime(2017, Calendar.JANUARY, 1, 23, 59)
+        assertThat(clock.getToday(), sameInstance(today))
+
+        clock.now = unixTime(2017, Calendar.JANUARY, 2, 0, 0)
+        assertThat(clock.getToday(), equalTo(timestamp(2017, Calendar.JANUARY, 2)))
+
+        clock.now = unixTime(2016, Calendar.DECEMBER, 31, 23, 59)
+        assertThat(clock.getToday(), equalTo(timestamp(2016, Calendar.DECEMBER, 31)))
+    }
+
+    @Test
+    fun testGetTodayWithOffset() {
+        setFixedTimeZone(TimeZone.getTimeZone("GMT"))
+        clock.setStartDayOffset(3, 30)
+        clock.now = unixTime(2017, Calendar.JANUARY, 2, 2, 0)
+        assertThat(clock.getToday(), equalTo(timestamp(2017, Calendar.JANUARY, 2)))
+        assertThat(clock.getTodayWithOffset(), equalTo(timestamp(2017, Calendar.JANUARY, 1)))
+
+        clock.now = unixTime(2017, Calendar.JANUARY, 2, 3, 30)
+        assertThat(clock.getToday(), equalTo(timestamp(2017, Calendar.JANUARY, 2)))
+        assertThat(clock.getTodayWithOffset(), equalTo(timestamp(2017, Calendar.JANUARY, 2)))
+
+        clock.setStartDayOffset(4, 0)
+        assertThat(clock.getTodayWithOffset(), equalTo(timestamp(2017, Calendar.JANUARY, 1)))
+        assertThat(clock.startDayOffset, equalTo(4 * HOUR_LENGTH))
+    }
+
+    @Test
+    fun testGetToday_timeZone() {
+        setFixedTimeZone(TimeZone.getTimeZone("GMT-5"))
+        clock.now = unixTime(2017, Calendar.JANUARY, 2, 4, 59)
+        assertThat(clock.getToday(), equalTo(timestamp(2017, Calendar.JANUARY, 1)))
+
+        clock.now = unixTime(2017, Calendar.JANUARY, 2, 5, 0)
+        assertThat(clock.getToday(), equalTo(timestamp(2017, Calendar.JANUARY, 2)))
+
+        setFixedTimeZone(TimeZone.getTimeZone("GMT+8"))
+        clock.invalidate()
+        clock.now = unixTime(2017, Calendar.JANUARY, 2, 16, 0)
+        assertThat(clock.getToday(), equalTo(timestamp(2017, Calendar.JANUARY, 3)))
+    }
+
+    @Test
+    fun testGetToday_daylightSavingTime() {
+        // On 2017-03-12, clocks in New York jumped from 02:00 EST to 03:00 EDT. One day later,
+        // midnight happened at 04:00 UTC instead of 05:00 UTC.
+        setFixedTimeZone(TimeZone.getTimeZone("America/New_York"))
+        clock.now = unixTime(2017, Calendar.MARCH, 12, 6, 0)
+        assertThat(clock.getToday(), equalTo(timestamp(2017, Calendar.MARCH, 12)))
+
+        clock.now = unixTime(2017, Calendar.MARCH, 13, 3, 59)
+        assertThat(clock.getToday(), equalTo(timestamp(2017, Calendar.MARCH, 12)))
+
+        clock.now = unixTime(2017, Calendar.MARCH, 13, 4, 0)
+        assertThat(clock.getToday(), equalTo(timestamp(2017, Calendar.MARCH, 13)))
+    }
+
+    @Test
+    fun testSetFixedLocalTime() {
+        setFixedTimeZone(TimeZone.getTimeZone("GMT"))
+        clock.now = unixTime(2017, Calendar.JANUARY, 1, 10, 0)
+        assertThat(clock.getToday(), equalTo(timestamp(2017, Calendar.JANUARY, 1)))
+
+        clock.setFixedLocalTime(unixTime(2020, Calendar.MAY, 5, 12, 0))
+        assertThat(clock.getToday(), equalTo(Timestamp(unixTime(2020, Calendar.MAY, 5))))
+        assertThat(clock.getLocalTime(), equalTo(unixTime(2020, Calendar.MAY, 5, 12, 0)))
+
+        clock.setFixedLocalTime(null)
+        assertThat(clock.getToday(), equalTo(timestamp(2017, Calendar.JANUARY, 1)))
+        assertThat(clock.getLocalTime(), equalTo(unixTime(2017, Calendar.JANUARY, 1, 10, 0)))
+    }
+}